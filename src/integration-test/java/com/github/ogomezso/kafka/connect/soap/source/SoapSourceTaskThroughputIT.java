@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
+import com.github.ogomezso.kafka.connect.soap.stub.SoapStubServer;
+import lombok.extern.slf4j.Slf4j;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Offline load test of a whole task against the in-process stub, run with {@code mvn -P integration-test verify}.
+ * Each run logs records per second, p99 poll latency and peak heap; {@code -Dsoap.it.seconds} sets how long each
+ * scenario polls.
+ */
+@Slf4j
+class SoapSourceTaskThroughputIT {
+
+  private static final long SECONDS = Long.getLong("soap.it.seconds", 10L);
+
+  @TempDir
+  Path requestDirectory;
+
+  private SoapStubServer server;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = new SoapStubServer(4096);
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.close();
+  }
+
+  @Test
+  public void given_many_requests_when_polled_then_every_response_becomes_a_record() throws Exception {
+    server.setLatencyMillis(5);
+
+    ThroughputHarness.Report report = new ThroughputHarness(server, 50, requestDirectory)
+        .run(SECONDS, TimeUnit.SECONDS);
+
+    log.info("50 requests, 4 KB, 5 ms: {}", report);
+    assertTrue(report.records > 0, report.toString());
+    assertTrue(report.records <= report.calls, report.toString());
+  }
+
+  @Test
+  public void given_large_responses_when_polled_then_heap_is_reported() throws Exception {
+    server.setResponseBytes(1024 * 1024);
+
+    ThroughputHarness.Report report = new ThroughputHarness(server, 4, requestDirectory)
+        .with(SoapClientConfig.TRANSPORT, SoapClientConfig.TRANSPORT_HTTP)
+        .run(SECONDS, TimeUnit.SECONDS);
+
+    log.info("4 requests, 1 MB, HTTP transport: {}", report);
+    assertTrue(report.records > 0);
+    assertTrue(report.maxHeapBytes > 0);
+  }
+
+  @Test
+  public void given_faults_when_polled_then_task_keeps_emitting_the_other_responses() throws Exception {
+    server.setFaultRate(0.25);
+
+    ThroughputHarness.Report report = new ThroughputHarness(server, 10, requestDirectory)
+        .with(SoapClientConfig.CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD, "90")
+        .run(SECONDS, TimeUnit.SECONDS);
+
+    log.info("10 requests, 25% faults: {}", report);
+    assertTrue(report.faults > 0, report.toString());
+    assertTrue(report.records > 0, report.toString());
+    // a fault never becomes a record
+    assertTrue(report.records <= report.calls - report.faults, report.toString());
+  }
+}
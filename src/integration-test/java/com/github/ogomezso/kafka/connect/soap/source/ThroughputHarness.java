@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.github.ogomezso.kafka.connect.soap.stub.SoapStubServer;
+
+/**
+ * Drives a {@link SoapSourceTask} the way the Connect worker does, {@code start()} and then {@code poll()} in a loop,
+ * against a {@link SoapStubServer}, and measures what comes out.
+ */
+class ThroughputHarness {
+
+  private final SoapStubServer server;
+  private final Path requestDirectory;
+  private final Map<String, String> settings = new HashMap<>();
+
+  ThroughputHarness(SoapStubServer server, int requests, Path requestDirectory) throws IOException {
+    this.server = server;
+    this.requestDirectory = requestDirectory;
+    StringBuilder files = new StringBuilder();
+    for (int i = 1; i <= requests; i++) {
+      File request = requestDirectory.resolve("getCountryRequest-" + i + ".xml").toFile();
+      Files.write(request.toPath(), SoapStubServer.REQUEST.getBytes(StandardCharsets.UTF_8));
+      files.append(files.length() == 0 ? "" : ", ").append(request.getAbsolutePath());
+    }
+    settings.put("name", "soap-throughput-it");
+    settings.put(SoapSourceTaskConfig.ENDPOINT_URL, server.getEndpointUrl());
+    settings.put(SoapSourceTaskConfig.SERVICE_NAME, SoapStubServer.SERVICE_NAME);
+    settings.put(SoapSourceTaskConfig.PORT_NAME, SoapStubServer.PORT_NAME);
+    settings.put(SoapSourceTaskConfig.TARGET_NAMESPACE, SoapStubServer.TARGET_NAMESPACE);
+    settings.put(SoapSourceTaskConfig.REQUEST_MSG_FILES, files.toString());
+    settings.put(SoapSourceTaskConfig.TOPIC_PREFIX, "soap.");
+    settings.put(SoapSourceTaskConfig.TOPIC, "countries.");
+    settings.put(SoapSourceTaskConfig.POLL_INTERVAL, "100");
+    settings.put(SoapSourceTaskConfig.CONNECTION_TIMEOUT, "50");
+  }
+
+  /**
+   * Any other task setting, overriding the defaults of the harness.
+   */
+  ThroughputHarness with(String key, String value) {
+    settings.put(key, value);
+    return this;
+  }
+
+  Report run(long duration, TimeUnit unit) throws InterruptedException {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    SoapSourceTask task = new SoapSourceTask();
+    long records = 0;
+    long maxHeap = 0;
+    long[] pollNanos = new long[1024];
+    int polls = 0;
+    long requestsBefore = server.getRequests();
+    long faultsBefore = server.getFaults();
+    task.start(settings);
+    long start = System.nanoTime();
+    long end = start + unit.toNanos(duration);
+    try {
+      while (System.nanoTime() < end) {
+        long pollStart = System.nanoTime();
+        List<SourceRecord> polled = task.poll();
+        if (polls == pollNanos.length) {
+          pollNanos = Arrays.copyOf(pollNanos, polls * 2);
+        }
+        pollNanos[polls++] = System.nanoTime() - pollStart;
+        records += polled.size();
+        maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed());
+      }
+    } finally {
+      task.stop();
+    }
+    long elapsed = System.nanoTime() - start;
+    return new Report(records, elapsed, percentile(pollNanos, polls, 99), maxHeap,
+        server.getRequests() - requestsBefore, server.getFaults() - faultsBefore);
+  }
+
+  Path getRequestDirectory() {
+    return requestDirectory;
+  }
+
+  private static long percentile(long[] values, int count, int percentile) {
+    if (count == 0) {
+      return 0L;
+    }
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+    return sorted[Math.max(index, 0)];
+  }
+
+  static final class Report {
+
+    final long records;
+    final long elapsedNanos;
+    final long p99PollNanos;
+    final long maxHeapBytes;
+    final long calls;
+    final long faults;
+
+    private Report(long records, long elapsedNanos, long p99PollNanos, long maxHeapBytes, long calls, long faults) {
+      this.records = records;
+      this.elapsedNanos = elapsedNanos;
+      this.p99PollNanos = p99PollNanos;
+      this.maxHeapBytes = maxHeapBytes;
+      this.calls = calls;
+      this.faults = faults;
+    }
+
+    double recordsPerSecond() {
+      return records / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    double p99PollMillis() {
+      return p99PollNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d records in %.1f s: %.1f records/s, p99 poll %.1f ms, max heap %d MB, %d calls, "
+              + "%d faults", records, elapsedNanos / 1e9, recordsPerSecond(), p99PollMillis(),
+          maxHeapBytes / (1024 * 1024), calls, faults);
+    }
+  }
+}
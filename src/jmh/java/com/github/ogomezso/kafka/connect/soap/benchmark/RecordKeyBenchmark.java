@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ogomezso.kafka.connect.soap.model.RecordKey;
+import com.github.ogomezso.kafka.connect.soap.model.RecordKeyStruct;
+import com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapper;
+import com.github.ogomezso.kafka.connect.soap.stub.SoapStubServer;
+
+/**
+ * The key every record pays for, whatever the size of its value: the JSON of the {@link RecordKey} and its struct,
+ * and a whole record with nothing but the key, which is what a tombstone is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordKeyBenchmark {
+
+  private static final String TOPIC = "soap.countries";
+
+  private final ObjectMapper jsonMapper = new ObjectMapper();
+  private final SourceRecordMapper mapper = new SourceRecordMapper();
+  private final RecordKey key = RecordKey.builder().serviceName(SoapStubServer.SERVICE_NAME)
+      .requestType("getCountryRequest").build();
+  private final RecordKey itemKey = key.toBuilder().itemId("ES").build();
+
+  @Benchmark
+  public RecordKeyStruct keyStruct() throws Exception {
+    return new RecordKeyStruct(jsonMapper.writeValueAsString(key));
+  }
+
+  @Benchmark
+  public RecordKeyStruct itemKeyStruct() throws Exception {
+    return new RecordKeyStruct(jsonMapper.writeValueAsString(itemKey));
+  }
+
+  @Benchmark
+  public SourceRecord keyOnlyRecord() throws Exception {
+    return mapper.getTombstone(itemKey, TOPIC, Collections.emptyMap());
+  }
+}
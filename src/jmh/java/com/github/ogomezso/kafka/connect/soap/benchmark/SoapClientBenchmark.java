@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.ogomezso.kafka.connect.soap.client.SoapClient;
+import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
+import com.github.ogomezso.kafka.connect.soap.stub.SoapStubServer;
+
+import jakarta.xml.soap.SOAPMessage;
+
+/**
+ * A whole call through {@link SoapClient}, request rendering, transport, response parsing and the endpoint's circuit
+ * breaker included, against an in-process stub, so what is measured is the client and not the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SoapClientBenchmark {
+
+  @Param({SoapClientConfig.TRANSPORT_JAXWS, SoapClientConfig.TRANSPORT_HTTP})
+  public String transport;
+
+  @Param({"1024", "65536", "1048576"})
+  public int responseBytes;
+
+  private SoapStubServer server;
+  private SoapClient client;
+  private File requestFile;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = new SoapStubServer(responseBytes);
+    requestFile = File.createTempFile("getCountryRequest", ".xml");
+    Files.write(requestFile.toPath(), SoapStubServer.REQUEST.getBytes(StandardCharsets.UTF_8));
+
+    Map<String, String> settings = new HashMap<>();
+    settings.put(SoapClientConfig.ENDPOINT_URL, server.getEndpointUrl());
+    settings.put(SoapClientConfig.SERVICE_NAME, SoapStubServer.SERVICE_NAME);
+    settings.put(SoapClientConfig.PORT_NAME, SoapStubServer.PORT_NAME);
+    settings.put(SoapClientConfig.TARGET_NAMESPACE, SoapStubServer.TARGET_NAMESPACE);
+    settings.put(SoapClientConfig.REQUEST_MSG_FILE, requestFile.getAbsolutePath());
+    settings.put(SoapClientConfig.TOPIC, "soap.countries");
+    settings.put(SoapClientConfig.TRANSPORT, transport);
+    client = new SoapClient();
+    client.start(new SoapClientConfig(settings));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.stop();
+    server.close();
+    requestFile.delete();
+  }
+
+  @Benchmark
+  public SOAPMessage call() throws Exception {
+    return client.call();
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.ogomezso.kafka.connect.soap.model.RecordKey;
+import com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapper;
+import com.github.ogomezso.kafka.connect.soap.model.ValueFormat;
+import com.github.ogomezso.kafka.connect.soap.stub.SoapStubServer;
+
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPMessage;
+
+/**
+ * Mapping of a response to a record, from 1 KB to 50 MB. Both paths start from the raw bytes as they come off the
+ * wire: the SAAJ one parses them into a {@link SOAPMessage} first, as the JAX-WS transport does, the stream one reads
+ * them in a single pass, as the HTTP transport does for plain requests. A list repeats the same element for every
+ * country, a record holds one country with distinct field names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SourceRecordMapperBenchmark {
+
+  private static final RecordKey KEY = RecordKey.builder().serviceName(SoapStubServer.SERVICE_NAME)
+      .requestType("getCountryRequest").build();
+  private static final String TOPIC = "soap.countries";
+
+  @Param({"1024", "65536", "1048576", "52428800"})
+  public int responseBytes;
+
+  @Param({"JSON_STRING", "STRUCT"})
+  public ValueFormat valueFormat;
+
+  @Param({"LIST", "RECORD"})
+  public String shape;
+
+  private final SourceRecordMapper mapper = new SourceRecordMapper();
+  private MessageFactory messageFactory;
+  private byte[] response;
+
+  @Setup
+  public void setUp() throws Exception {
+    messageFactory = MessageFactory.newInstance();
+    response = "LIST".equals(shape) ? SoapStubServer.envelope(responseBytes)
+        : SoapStubServer.recordEnvelope(responseBytes);
+  }
+
+  @Benchmark
+  public SourceRecord soapMessage() throws Exception {
+    MimeHeaders headers = new MimeHeaders();
+    headers.addHeader("Content-Type", "text/xml; charset=utf-8");
+    SOAPMessage message = messageFactory.createMessage(headers, new ByteArrayInputStream(response));
+    return mapper.getSourceRecordFromSoapMessage(KEY, message, TOPIC, valueFormat, Collections.emptyMap());
+  }
+
+  @Benchmark
+  public SourceRecord stream() throws Exception {
+    return mapper.getSourceRecordFromStream(KEY, new ByteArrayInputStream(response), TOPIC, valueFormat,
+        Collections.emptyMap());
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.xml.soap.SOAPMessage;
+import jakarta.xml.ws.Dispatch;
+
+/**
+ * Bounded pool of configured {@link Dispatch} instances. A Dispatch is not thread safe, so every invocation borrows
+ * one exclusively; instances are created lazily up to {@code maxSize} and then reused for the life of the client.
+ */
+public class DispatchPool {
+
+  private final Supplier<Dispatch<SOAPMessage>> factory;
+  private final int maxSize;
+  private final BlockingQueue<Dispatch<SOAPMessage>> idle;
+  private final AtomicInteger created = new AtomicInteger();
+
+  public DispatchPool(Supplier<Dispatch<SOAPMessage>> factory, int maxSize) {
+    this.factory = factory;
+    this.maxSize = Math.max(maxSize, 1);
+    this.idle = new LinkedBlockingQueue<>(this.maxSize);
+  }
+
+  public Dispatch<SOAPMessage> borrow() throws InterruptedException {
+    Dispatch<SOAPMessage> dispatch = idle.poll();
+    if (dispatch != null) {
+      return dispatch;
+    }
+    int current;
+    while ((current = created.get()) < maxSize) {
+      if (created.compareAndSet(current, current + 1)) {
+        try {
+          return factory.get();
+        } catch (RuntimeException e) {
+          created.decrementAndGet();
+          throw e;
+        }
+      }
+    }
+    return idle.take();
+  }
+
+  /**
+   * Eagerly creates the first instance so configuration problems show up when the client starts.
+   */
+  public void warmUp() {
+    if (created.compareAndSet(0, 1)) {
+      try {
+        idle.offer(factory.get());
+      } catch (RuntimeException e) {
+        created.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+
+  public void release(Dispatch<SOAPMessage> dispatch) {
+    idle.offer(dispatch);
+  }
+
+  public int created() {
+    return created.get();
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.SlidingWindowType;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The circuit breaker, rate limiter and bulkhead guarding one endpoint URL. They live in registries shared by the
+ * whole worker, so every client calling the endpoint, whatever task or connector it belongs to, goes through the
+ * same instances: an endpoint allowing N calls per second gets N calls per second from the worker, not N per task.
+ * <p>
+ * The first client of an endpoint sets its configuration; a different one from a later client is logged and ignored
+ * while the endpoint has clients. Each client {@link #close() closes} it when it stops, and the last one drops it, so a
+ * reconfigured connector guards the endpoint with its new settings.
+ * Calls pass the circuit breaker first, so an open circuit consumes no permit, then the rate limiter and the bulkhead.
+ * Being refused a permit is not counted by the circuit breaker as a failure of the endpoint.
+ */
+@Slf4j
+public class EndpointResilience {
+
+  private static final CircuitBreakerRegistry CIRCUIT_BREAKERS = CircuitBreakerRegistry.ofDefaults();
+  private static final RateLimiterRegistry RATE_LIMITERS = RateLimiterRegistry.ofDefaults();
+  private static final BulkheadRegistry BULKHEADS = BulkheadRegistry.ofDefaults();
+  private static final ConcurrentMap<String, EndpointResilience> ENDPOINTS = new ConcurrentHashMap<>();
+
+  private static final float DEFAULT_FAILURE_RATE_THRESHOLD = 10f;
+  private static final int DEFAULT_MINIMUM_CALLS = 3;
+  private static final long DEFAULT_WAIT_IN_OPEN_STATE_MS = 60000L;
+
+  private final String endpointUrl;
+  private final Settings settings;
+  private final CircuitBreaker circuitBreaker;
+  private final RateLimiter rateLimiter;
+  private final Bulkhead bulkhead;
+  // guarded by the ENDPOINTS entry of the endpoint
+  private int clients;
+
+  private EndpointResilience(String endpointUrl, Settings settings) {
+    this.endpointUrl = endpointUrl;
+    this.settings = settings;
+    this.circuitBreaker = CIRCUIT_BREAKERS.circuitBreaker(endpointUrl, CircuitBreakerConfig.custom()
+        .failureRateThreshold(settings.failureRateThreshold)
+        .slidingWindow(settings.slidingWindowSeconds, settings.minimumCalls, SlidingWindowType.TIME_BASED)
+        .waitDurationInOpenState(Duration.ofMillis(settings.waitInOpenStateMs))
+        .ignoreExceptions(RequestNotPermitted.class, BulkheadFullException.class)
+        .build());
+    this.rateLimiter = settings.callsPerSecond <= 0 ? null : RATE_LIMITERS.rateLimiter(endpointUrl,
+        RateLimiterConfig.custom()
+            .limitForPeriod(settings.callsPerSecond)
+            .limitRefreshPeriod(Duration.ofSeconds(1))
+            .timeoutDuration(Duration.ofMillis(settings.permitTimeoutMs))
+            .build());
+    this.bulkhead = settings.maxConcurrentCalls <= 0 ? null : BULKHEADS.bulkhead(endpointUrl,
+        BulkheadConfig.custom()
+            .maxConcurrentCalls(settings.maxConcurrentCalls)
+            .maxWaitDuration(Duration.ofMillis(settings.permitTimeoutMs))
+            .build());
+  }
+
+  public static EndpointResilience forEndpoint(String endpointUrl, SoapClientConfig config) {
+    Settings settings = new Settings(config);
+    EndpointResilience resilience = ENDPOINTS.compute(endpointUrl, (e, current) -> {
+      EndpointResilience guard = current == null ? new EndpointResilience(e, settings) : current;
+      guard.clients++;
+      return guard;
+    });
+    if (!resilience.settings.equals(settings)) {
+      log.warn("Endpoint {} is already guarded with {}, ignoring {}", endpointUrl, resilience.settings, settings);
+    }
+    return resilience;
+  }
+
+  /**
+   * Called once by every client of the endpoint when it stops; the last one removes its guards from the worker.
+   */
+  public void close() {
+    ENDPOINTS.computeIfPresent(endpointUrl, (e, current) -> {
+      if (current != this || --clients > 0) {
+        return current;
+      }
+      CIRCUIT_BREAKERS.remove(e);
+      RATE_LIMITERS.remove(e);
+      BULKHEADS.remove(e);
+      return null;
+    });
+  }
+
+  public <T> T execute(Callable<T> call) throws Exception {
+    Callable<T> guarded = call;
+    if (bulkhead != null) {
+      guarded = Bulkhead.decorateCallable(bulkhead, guarded);
+    }
+    if (rateLimiter != null) {
+      guarded = RateLimiter.decorateCallable(rateLimiter, guarded);
+    }
+    return circuitBreaker.executeCallable(guarded);
+  }
+
+  /**
+   * The asynchronous counterpart of {@link #execute}: the bulkhead permit is only tried, never waited for, and is
+   * held until the call completes. Only a rate limiter permit may be waited for, up to the permit timeout.
+   */
+  public <T> CompletionStage<T> executeCompletionStage(Supplier<CompletionStage<T>> call) {
+    Supplier<CompletionStage<T>> guarded = call;
+    if (bulkhead != null) {
+      guarded = Bulkhead.decorateCompletionStage(bulkhead, guarded);
+    }
+    if (rateLimiter != null) {
+      guarded = RateLimiter.decorateCompletionStage(rateLimiter, guarded);
+    }
+    return circuitBreaker.executeCompletionStage(guarded);
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public RateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  public Bulkhead getBulkhead() {
+    return bulkhead;
+  }
+
+  private static final class Settings {
+
+    private final float failureRateThreshold;
+    private final int minimumCalls;
+    private final int slidingWindowSeconds;
+    private final long waitInOpenStateMs;
+    private final int callsPerSecond;
+    private final int maxConcurrentCalls;
+    private final long permitTimeoutMs;
+
+    private Settings(SoapClientConfig config) {
+      Double failureRate = config.getDouble(SoapClientConfig.CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD);
+      this.failureRateThreshold = failureRate == null || failureRate <= 0 ? DEFAULT_FAILURE_RATE_THRESHOLD
+          : failureRate.floatValue();
+      this.minimumCalls = positive(config.getInt(SoapClientConfig.CIRCUIT_BREAKER_MINIMUM_CALLS),
+          DEFAULT_MINIMUM_CALLS);
+      Integer window = config.getInt(SoapClientConfig.CIRCUIT_BREAKER_SLIDING_WINDOW);
+      Long connectionTimeout = config.getLong(SoapClientConfig.CONNECTION_TIMEOUT);
+      // by default three connection timeouts, so that a window always holds some complete calls
+      this.slidingWindowSeconds = window != null && window > 0 ? window
+          : (int) Math.max(1L, (connectionTimeout == null ? 0L : connectionTimeout) * 3 / 1000);
+      Long wait = config.getLong(SoapClientConfig.CIRCUIT_BREAKER_WAIT_IN_OPEN_STATE);
+      this.waitInOpenStateMs = wait == null || wait <= 0 ? DEFAULT_WAIT_IN_OPEN_STATE_MS : wait;
+      this.callsPerSecond = positive(config.getInt(SoapClientConfig.ENDPOINT_RATE_LIMIT), 0);
+      this.maxConcurrentCalls = positive(config.getInt(SoapClientConfig.ENDPOINT_MAX_CONCURRENT_CALLS), 0);
+      Long permitTimeout = config.getLong(SoapClientConfig.ENDPOINT_PERMIT_TIMEOUT);
+      this.permitTimeoutMs = permitTimeout == null || permitTimeout < 0 ? 0L : permitTimeout;
+    }
+
+    private static int positive(Integer value, int defaultValue) {
+      return value == null || value <= 0 ? defaultValue : value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Settings)) {
+        return false;
+      }
+      Settings that = (Settings) o;
+      return Float.compare(that.failureRateThreshold, failureRateThreshold) == 0 && minimumCalls == that.minimumCalls
+          && slidingWindowSeconds == that.slidingWindowSeconds && waitInOpenStateMs == that.waitInOpenStateMs
+          && callsPerSecond == that.callsPerSecond && maxConcurrentCalls == that.maxConcurrentCalls
+          && permitTimeoutMs == that.permitTimeoutMs;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(failureRateThreshold, minimumCalls, slidingWindowSeconds, waitInOpenStateMs,
+          callsPerSecond, maxConcurrentCalls, permitTimeoutMs);
+    }
+
+    @Override
+    public String toString() {
+      return "{failureRateThreshold=" + failureRateThreshold + ", minimumCalls=" + minimumCalls
+          + ", slidingWindowSeconds=" + slidingWindowSeconds + ", waitInOpenStateMs=" + waitInOpenStateMs
+          + ", callsPerSecond=" + callsPerSecond + ", maxConcurrentCalls=" + maxConcurrentCalls
+          + ", permitTimeoutMs=" + permitTimeoutMs + "}";
+    }
+  }
+}
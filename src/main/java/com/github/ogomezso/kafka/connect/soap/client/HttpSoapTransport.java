@@ -0,0 +1,297 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import jakarta.xml.soap.SOAPException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SOAP 1.1 over plain HTTP: POSTs the prepared envelope bytes and hands back the raw response stream, without the
+ * JAX-WS handler chain or any SAAJ object. Connections are kept alive and reused by the JDK as long as every response
+ * stream is closed, which the returned stream does by draining what the reader left behind.
+ * <p>
+ * A 500 response is read as a SOAP fault and reported as a {@link SOAPException} carrying its fault string.
+ * <p>
+ * Optionally gzip or deflate responses are accepted and inflated while the caller reads them, so a large response is
+ * never held uncompressed, and request bodies above a threshold are compressed as they are written.
+ */
+@Slf4j
+public class HttpSoapTransport {
+
+  static final String CONTENT_TYPE = "text/xml; charset=utf-8";
+  static final String DEFLATE = "deflate";
+  static final String GZIP = "gzip";
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_DRAIN_BYTES = 64 * 1024;
+  private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+  private final URL endpoint;
+  private final String soapAction;
+  private final int connectTimeout;
+  private final int readTimeout;
+  private final boolean acceptCompressed;
+  private final String requestEncoding;
+  private final int compressionThreshold;
+
+  public HttpSoapTransport(URL endpoint, String soapAction, int connectTimeout, int readTimeout) {
+    this(endpoint, soapAction, connectTimeout, readTimeout, false, null, 0);
+  }
+
+  /**
+   * @param acceptCompressed     whether gzip and deflate responses are accepted
+   * @param requestEncoding      {@code gzip} or {@code deflate} to compress request bodies, {@code null} not to
+   * @param compressionThreshold smallest request body compressed, in bytes
+   */
+  public HttpSoapTransport(URL endpoint, String soapAction, int connectTimeout, int readTimeout,
+                           boolean acceptCompressed, String requestEncoding, int compressionThreshold) {
+    this.endpoint = endpoint;
+    this.soapAction = soapAction == null ? "" : soapAction;
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+    this.acceptCompressed = acceptCompressed;
+    this.requestEncoding = requestEncoding;
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /**
+   * Sends the envelope and returns the response body, which the caller must close.
+   */
+  public Response post(byte[] envelope) throws IOException, SOAPException {
+    HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setConnectTimeout(connectTimeout);
+    connection.setReadTimeout(readTimeout);
+    connection.setDoOutput(true);
+    connection.setUseCaches(false);
+    connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+    // multipart/related for MTOM responses
+    connection.setRequestProperty("Accept", "text/xml, multipart/related");
+    connection.setRequestProperty("SOAPAction", "\"" + soapAction + "\"");
+    if (acceptCompressed) {
+      connection.setRequestProperty("Accept-Encoding", GZIP + ", " + DEFLATE);
+    }
+    boolean compressRequest = requestEncoding != null && envelope.length >= compressionThreshold;
+    if (compressRequest) {
+      // the compressed length is only known once written: send it in chunks rather than buffer it
+      connection.setChunkedStreamingMode(0);
+      connection.setRequestProperty("Content-Encoding", requestEncoding);
+    } else {
+      connection.setFixedLengthStreamingMode(envelope.length);
+    }
+    try (OutputStream out = compressRequest ? compressing(connection.getOutputStream())
+        : connection.getOutputStream()) {
+      out.write(envelope);
+    }
+
+    int status = connection.getResponseCode();
+    String contentEncoding = connection.getContentEncoding();
+    if (status == HttpURLConnection.HTTP_OK) {
+      return new Response(decoding(new DrainingInputStream(connection.getInputStream()), contentEncoding),
+          connection.getContentType());
+    }
+    InputStream error = connection.getErrorStream();
+    if (error == null) {
+      throw new IOException("HTTP " + status + " from " + endpoint);
+    }
+    try (InputStream in = decoding(new DrainingInputStream(error), contentEncoding)) {
+      if (status == HttpURLConnection.HTTP_INTERNAL_ERROR) {
+        throw new SOAPException("SOAP fault from " + endpoint + ": " + faultString(in));
+      }
+      throw new IOException("HTTP " + status + " from " + endpoint);
+    }
+  }
+
+  private OutputStream compressing(OutputStream out) throws IOException {
+    if (GZIP.equals(requestEncoding)) {
+      return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+    return new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          def.end();
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps the response body so it is inflated while read. A deflate body may be zlib wrapped, as the specification
+   * says, or raw deflate, as some servers send it: the first two bytes tell which.
+   */
+  static InputStream decoding(InputStream in, String contentEncoding) throws IOException {
+    if (contentEncoding == null || contentEncoding.isEmpty() || "identity".equalsIgnoreCase(contentEncoding)) {
+      return in;
+    }
+    try {
+      if (GZIP.equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+        return new GZIPInputStream(in, BUFFER_SIZE);
+      }
+      if (DEFLATE.equalsIgnoreCase(contentEncoding)) {
+        PushbackInputStream peekable = new PushbackInputStream(in, 2);
+        byte[] header = new byte[2];
+        int read = peekable.read(header);
+        if (read > 0) {
+          peekable.unread(header, 0, read);
+        }
+        Inflater inflater = new Inflater(!(read == 2 && isZlibHeader(header[0] & 0xFF, header[1] & 0xFF)));
+        return new InflaterInputStream(peekable, inflater, BUFFER_SIZE) {
+          @Override
+          public void close() throws IOException {
+            try {
+              super.close();
+            } finally {
+              inflater.end();
+            }
+          }
+        };
+      }
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    in.close();
+    throw new IOException("Unsupported Content-Encoding " + contentEncoding);
+  }
+
+  private static boolean isZlibHeader(int cmf, int flg) {
+    return (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+  }
+
+  /**
+   * The faultstring of a SOAP 1.1 fault, or the faultcode when it has none.
+   */
+  static String faultString(InputStream in) {
+    String faultCode = null;
+    try {
+      XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+            if ("faultstring".equals(reader.getLocalName())) {
+              return reader.getElementText();
+            }
+            if ("faultcode".equals(reader.getLocalName())) {
+              faultCode = reader.getElementText();
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      log.debug("Unreadable fault", e);
+      return "unreadable fault (" + e.getMessage() + ")";
+    }
+    return faultCode == null ? "no fault details" : faultCode;
+  }
+
+  /**
+   * A response body, which knows its Content-Type: a multipart one needs it to be parsed.
+   */
+  public static final class Response extends FilterInputStream {
+
+    private final String contentType;
+    private long bytesRead;
+
+    private Response(InputStream in, String contentType) {
+      super(in);
+      this.contentType = contentType;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Bytes of the decoded response read so far.
+     */
+    public long getBytesRead() {
+      return bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        bytesRead++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        bytesRead += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      bytesRead += skipped;
+      return skipped;
+    }
+  }
+
+  /**
+   * Reads whatever is left of the response on close, so the connection goes back to the keep-alive cache instead of
+   * being dropped. A reader stopping at the end of the payload still leaves the closing envelope tags unread.
+   */
+  private static final class DrainingInputStream extends FilterInputStream {
+
+    private DrainingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        byte[] buffer = new byte[4096];
+        int drained = 0;
+        int n;
+        while (drained < MAX_DRAIN_BYTES && (n = in.read(buffer)) != -1) {
+          drained += n;
+        }
+      } catch (IOException e) {
+        log.debug("Response not drained", e);
+      } finally {
+        super.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the asynchronous calls outstanding against one endpoint URL, shared by every client calling it in the JVM
+ * until the last one {@link #close() closes} it.
+ */
+@Slf4j
+public class InFlightLimiter {
+
+  private static final ConcurrentMap<String, InFlightLimiter> ENDPOINTS = new ConcurrentHashMap<>();
+
+  private final String endpoint;
+  private final int maxInFlight;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  // guarded by the ENDPOINTS entry of the endpoint
+  private int clients;
+
+  InFlightLimiter(String endpoint, int maxInFlight) {
+    this.endpoint = endpoint;
+    this.maxInFlight = Math.max(maxInFlight, 1);
+  }
+
+  public static InFlightLimiter forEndpoint(String endpoint, int maxInFlight) {
+    InFlightLimiter limiter = ENDPOINTS.compute(endpoint, (e, current) -> {
+      InFlightLimiter shared = current == null ? new InFlightLimiter(e, maxInFlight) : current;
+      shared.clients++;
+      return shared;
+    });
+    if (limiter.maxInFlight != Math.max(maxInFlight, 1)) {
+      log.warn("Endpoint {} is already limited to {} calls in flight, ignoring {}", endpoint, limiter.maxInFlight,
+          maxInFlight);
+    }
+    return limiter;
+  }
+
+  /**
+   * Called once by every client of the endpoint when it stops; the last one drops the limiter, so the next client
+   * sets the limit again.
+   */
+  public void close() {
+    ENDPOINTS.computeIfPresent(endpoint, (e, current) -> current != this || --clients > 0 ? current : null);
+  }
+
+  public boolean tryAcquire() {
+    int current;
+    while ((current = inFlight.get()) < maxInFlight) {
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  public int maxInFlight() {
+    return maxInFlight;
+  }
+
+  @Override
+  public String toString() {
+    return "InFlightLimiter{endpoint=" + endpoint + ", inFlight=" + inFlight() + "/" + maxInFlight + "}";
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPException;
+import jakarta.xml.soap.SOAPMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory copy of a request message file. The payload is read once and kept as immutable bytes; every call only
+ * wraps them in a new stream. The file is read again only when its modification time changes.
+ * <p>
+ * The payload may hold {@code ${name}} placeholders, replaced on every call by the XML escaped value of the given
+ * variable. Templates without placeholders skip the substitution altogether.
+ */
+@Slf4j
+public class RequestTemplate {
+
+  static final String CONTENT_TYPE = "text/xml; charset=utf-8";
+
+  private final File file;
+  private final AtomicInteger loads = new AtomicInteger();
+  private volatile Snapshot snapshot = new Snapshot(null, 0L);
+
+  public RequestTemplate(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Reads the file eagerly. A missing file is only logged, as it may show up before the first poll.
+   */
+  public void load() {
+    try {
+      current();
+    } catch (IOException e) {
+      log.warn("Request file {} not loaded: {}", file, e.getMessage());
+    }
+  }
+
+  public byte[] bytes() throws IOException {
+    return current().payload.clone();
+  }
+
+  public InputStream openStream() throws IOException {
+    return new ByteArrayInputStream(current().payload);
+  }
+
+  public InputStream openStream(Map<String, String> variables) throws IOException {
+    return new ByteArrayInputStream(render(variables));
+  }
+
+  /**
+   * The payload with its placeholders replaced. Without placeholders it is the shared snapshot itself: never modify it.
+   */
+  byte[] render(Map<String, String> variables) throws IOException {
+    Snapshot s = current();
+    if (!s.hasPlaceholders || variables.isEmpty()) {
+      return s.payload;
+    }
+    String text = s.text;
+    for (Map.Entry<String, String> v : variables.entrySet()) {
+      text = text.replace("${" + v.getKey() + "}", escape(v.getValue()));
+    }
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  public SOAPMessage newMessage(MessageFactory messageFactory) throws IOException, SOAPException {
+    return newMessage(messageFactory, Collections.emptyMap());
+  }
+
+  public SOAPMessage newMessage(MessageFactory messageFactory, Map<String, String> variables)
+      throws IOException, SOAPException {
+    MimeHeaders headers = new MimeHeaders();
+    headers.addHeader("Content-Type", CONTENT_TYPE);
+    return messageFactory.createMessage(headers, openStream(variables));
+  }
+
+  static String escape(String value) {
+    StringBuilder sb = new StringBuilder(value.length() + 16);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          sb.append("&amp;");
+          break;
+        case '<':
+          sb.append("&lt;");
+          break;
+        case '>':
+          sb.append("&gt;");
+          break;
+        case '"':
+          sb.append("&quot;");
+          break;
+        case '\'':
+          sb.append("&apos;");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  int loads() {
+    return loads.get();
+  }
+
+  private Snapshot current() throws IOException {
+    long lastModified = file.lastModified();
+    Snapshot s = snapshot;
+    if (s.payload != null && s.lastModified == lastModified) {
+      return s;
+    }
+    return reload(lastModified);
+  }
+
+  private synchronized Snapshot reload(long lastModified) throws IOException {
+    Snapshot s = snapshot;
+    if (s.payload != null && s.lastModified == lastModified) {
+      return s;
+    }
+    if (!file.isFile()) {
+      throw new FileNotFoundException(file.getAbsolutePath());
+    }
+    s = new Snapshot(Files.readAllBytes(file.toPath()), lastModified);
+    loads.incrementAndGet();
+    log.debug("Request file {} loaded ({} bytes)", file, s.payload.length);
+    snapshot = s;
+    return s;
+  }
+
+  private static final class Snapshot {
+
+    private final byte[] payload;
+    private final long lastModified;
+    private final String text;
+    private final boolean hasPlaceholders;
+
+    private Snapshot(byte[] payload, long lastModified) {
+      this.payload = payload;
+      this.lastModified = lastModified;
+      this.text = payload == null ? null : new String(payload, StandardCharsets.UTF_8);
+      this.hasPlaceholders = text != null && text.contains("${");
+    }
+  }
+}
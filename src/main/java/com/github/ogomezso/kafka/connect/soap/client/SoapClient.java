@@ -15,32 +15,41 @@
 package com.github.ogomezso.kafka.connect.soap.client;
 
 import javax.xml.namespace.QName;
-import javax.xml.transform.stream.StreamSource;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.errors.ConnectException;
 
 import com.github.jcustenborder.kafka.connect.utils.config.ConfigUtils;
+import com.github.ogomezso.kafka.connect.soap.metrics.RequestMetrics;
+import com.github.ogomezso.kafka.connect.soap.scheduler.SharedExecutor;
 
-import io.github.resilience4j.circuitbreaker.CircuitBreaker;
-import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
-import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.SlidingWindowType;
-import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPBody;
 import jakarta.xml.soap.SOAPException;
 import jakarta.xml.soap.SOAPMessage;
-import jakarta.xml.soap.SOAPPart;
 import jakarta.xml.ws.Dispatch;
 import jakarta.xml.ws.Service;
+import jakarta.xml.ws.handler.MessageContext;
 import jakarta.xml.ws.soap.SOAPBinding;
 import lombok.extern.slf4j.Slf4j;
 
@@ -53,21 +62,54 @@ public class SoapClient {
     return config;
   }
 
-  private static final int MAX_CORES_USED = Optional
-      .of(Runtime.getRuntime().availableProcessors() / 2)
-      .filter(cores -> !cores.equals(0))
-      .orElse(1);
-  private final ScheduledExecutorService executor = Executors
-      .newScheduledThreadPool(MAX_CORES_USED);
+  private final SharedExecutor executor;
+  private final boolean ownsExecutor;
 
   private Callable<SOAPMessage> task;
+  private EndpointResilience resilience;
+  // calls racing stop() still go through the endpoint guards, only the reference to them is given back
+  private boolean holdsEndpoint;
+  private Service service;
+  private QName portName;
+  private MessageFactory messageFactory;
+  private DispatchPool dispatchPool;
+  private RequestTemplate requestTemplate;
+  private HttpSoapTransport httpTransport;
+  private InFlightLimiter inFlightLimiter;
+  private RequestMetrics metrics;
+  private boolean ownsMetrics;
+
+  public SoapClient() {
+    this(new SharedExecutor(1), true);
+  }
+
+  /**
+   * Client submitting its calls to an executor shared with the other clients of the task.
+   */
+  public SoapClient(SharedExecutor executor) {
+    this(executor, false);
+  }
+
+  /**
+   * Client of a task reporting its calls to the metrics of its request.
+   */
+  public SoapClient(SharedExecutor executor, RequestMetrics metrics) {
+    this(executor, false);
+    this.metrics = metrics;
+  }
+
+  private SoapClient(SharedExecutor executor, boolean ownsExecutor) {
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+  }
 
   public void start(SoapClientConfig config) {
+    releaseEndpoint();
     this.config = config;
 
     QName serviceName = new QName(config.getString(SoapClientConfig.TARGET_NAMESPACE),
         config.getString(SoapClientConfig.SERVICE_NAME));
-    QName portName = new QName(config.getString(SoapClientConfig.TARGET_NAMESPACE),
+    this.portName = new QName(config.getString(SoapClientConfig.TARGET_NAMESPACE),
         config.getString(SoapClientConfig.PORT_NAME));
     String endpointUrl = config.getString(SoapClientConfig.ENDPOINT_URL);
     String actionUrl = config.getString(SoapClientConfig.SOAP_ACTION);
@@ -75,57 +117,55 @@ public class SoapClient {
         .getAbsoluteFile(config, SoapClientConfig.REQUEST_MSG_FILE);
     Long connectionTimeout = config.getLong(SoapClientConfig.CONNECTION_TIMEOUT);
     Long requestTimeout = config.getLong(SoapClientConfig.REQUEST_TIMEOUT);
-    createCircuitBreakerTask(serviceName, portName, endpointUrl, actionUrl, messageFile, connectionTimeout,
-        requestTimeout);
-  }
-
-  private void createCircuitBreakerTask(QName serviceName, QName portName, String endpointUrl, String actionUrl,
-      File messageFile, Long connectionTimeout, Long requestTimeout) {
-    CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
-        .failureRateThreshold(10)
-        .slidingWindow(connectionTimeout.intValue() * 3, 3, SlidingWindowType.TIME_BASED)
-        .build();
-
-    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(circuitBreakerConfig);
-    CircuitBreaker circuitBreaker = registry.circuitBreaker("SoapTask");
-    this.task = CircuitBreaker
-        .decorateCallable(circuitBreaker, () -> {
-          SOAPMessage result = null;
-          try {
-            result = invoke(serviceName, portName, endpointUrl, actionUrl,
-                messageFile, connectionTimeout, requestTimeout);
-          } catch (SOAPException e) {
-            log.error("Error executing SOAP Call", e);
-          } catch (FileNotFoundException e) {
-            log.error("Request file not present", e);
-          }
-          return Optional.ofNullable(result)
-              .orElseThrow(() -> new RuntimeException("Unexpected Error fetching Service"));
-        });
-  }
+    boolean httpTransport = SoapClientConfig.TRANSPORT_HTTP.equals(config.getString(SoapClientConfig.TRANSPORT));
 
-  public SOAPMessage poll(Long pollInterval)
-      throws ExecutionException, InterruptedException, TimeoutException {
+    try {
+      this.messageFactory = MessageFactory.newInstance();
+    } catch (SOAPException e) {
+      throw new ConnectException("Unable to create SOAP message factory", e);
+    }
+    if (httpTransport) {
+      String requestCompression = config.getString(SoapClientConfig.REQUEST_COMPRESSION);
+      this.httpTransport = new HttpSoapTransport(endpoint(endpointUrl), actionUrl, connectionTimeout.intValue(),
+          requestTimeout.intValue(), Boolean.TRUE.equals(config.getBoolean(SoapClientConfig.RESPONSE_COMPRESSION)),
+          requestCompression == null || SoapClientConfig.COMPRESSION_NONE.equals(requestCompression) ? null
+              : requestCompression.toLowerCase(Locale.ROOT),
+          config.getInt(SoapClientConfig.REQUEST_COMPRESSION_THRESHOLD));
+    } else {
+      // JAX-WS setup is far more expensive than a small call: build it once and reuse it for every poll
+      this.service = Service.create(serviceName);
+      this.service.addPort(portName, SOAPBinding.SOAP11HTTP_BINDING, endpointUrl);
+      this.dispatchPool = new DispatchPool(() -> createDispatch(actionUrl, connectionTimeout, requestTimeout),
+          config.getInt(SoapClientConfig.DISPATCH_POOL_SIZE));
+      this.dispatchPool.warmUp();
+    }
+    this.requestTemplate = new RequestTemplate(messageFile);
+    this.requestTemplate.load();
 
-    ScheduledFuture<SOAPMessage> future = executor
-        .schedule(task, pollInterval,
-            TimeUnit.MILLISECONDS);
+    createResilienceTask(endpointUrl);
+    int maxInFlight = config.getInt(SoapClientConfig.MAX_IN_FLIGHT_REQUESTS);
+    this.inFlightLimiter = maxInFlight > 0 ? InFlightLimiter.forEndpoint(endpointUrl, maxInFlight) : null;
+    if (inFlightLimiter != null && service != null) {
+      service.setExecutor(executor.io());
+    }
 
-    log.debug("invoking at: " + LocalDateTime.now());
-    SOAPMessage result = future
-        .get(pollInterval + 5000L,
-            TimeUnit.MILLISECONDS);
-    log.debug("result: " + result.toString());
-    log.debug("get future at : " + LocalDateTime.now());
-    return result;
+    if (metrics == null || ownsMetrics) {
+      this.metrics = RequestMetrics.unregistered(messageFile.getName());
+      this.ownsMetrics = true;
+    }
+    metrics.registerCircuitBreaker(resilience.getCircuitBreaker());
+    metrics.registerExecutor(executor);
   }
 
-  private SOAPMessage invoke(QName serviceName, QName portName, String endpointUrl,
-      String soapActionUri, File pathToMessage, Long connectionTimeout, Long requestTimeout)
-      throws SOAPException, FileNotFoundException {
-    Service service = Service.create(serviceName);
-    service.addPort(portName, SOAPBinding.SOAP11HTTP_BINDING, endpointUrl);
+  private static URL endpoint(String endpointUrl) {
+    try {
+      return new URL(endpointUrl);
+    } catch (MalformedURLException e) {
+      throw new ConfigException(SoapClientConfig.ENDPOINT_URL, endpointUrl, e.getMessage());
+    }
+  }
 
+  Dispatch<SOAPMessage> createDispatch(String soapActionUri, Long connectionTimeout, Long requestTimeout) {
     Dispatch<SOAPMessage> dispatch = service.createDispatch(portName,
         SOAPMessage.class, Service.Mode.MESSAGE);
     dispatch.getRequestContext()
@@ -133,20 +173,272 @@ public class SoapClient {
     dispatch.getRequestContext().put("com.sun.xml.ws.request.timeout", requestTimeout.intValue());
     dispatch.getRequestContext().put(Dispatch.SOAPACTION_USE_PROPERTY, Boolean.TRUE);
     dispatch.getRequestContext().put(Dispatch.SOAPACTION_URI_PROPERTY, soapActionUri);
+    return dispatch;
+  }
+
+  /**
+   * Every client of the same endpoint in the worker shares its circuit breaker, rate limiter and bulkhead.
+   */
+  private void createResilienceTask(String endpointUrl) {
+    EndpointResilience guard = EndpointResilience.forEndpoint(endpointUrl, config);
+    this.resilience = guard;
+    this.holdsEndpoint = true;
+    this.task = () -> guard.execute(() -> fetch(Collections.emptyMap()));
+  }
+
+  /**
+   * A failed call is reported to the caller with its own exception, which logs it once and counts it by type.
+   */
+  private SOAPMessage fetch(Map<String, String> variables) throws SOAPException, IOException, InterruptedException {
+    return Optional.ofNullable(invoke(variables))
+        .orElseThrow(() -> new ConnectException("Empty response from "
+            + config.getString(SoapClientConfig.ENDPOINT_URL)));
+  }
+
+  public RequestMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void submit(Runnable cycle) {
+    executor.execute(cycle);
+  }
+
+  public SOAPMessage call() throws Exception {
+    log.debug("invoking at: " + LocalDateTime.now());
+    return task.call();
+  }
+
+  /**
+   * Calls the service with the {@code ${name}} placeholders of the request message replaced by {@code variables}.
+   */
+  public SOAPMessage call(Map<String, String> variables) throws Exception {
+    if (variables.isEmpty()) {
+      return call();
+    }
+    log.debug("invoking at: " + LocalDateTime.now());
+    return resilience.execute(() -> fetch(variables));
+  }
 
-    MessageFactory messageFactory = MessageFactory.newInstance();
-    SOAPMessage message = messageFactory.createMessage();
-    SOAPPart soapPart = message.getSOAPPart();
-    StreamSource preppedMsgSrc = new StreamSource(new FileInputStream(
-        pathToMessage));
-    soapPart.setContent(preppedMsgSrc);
-    message.saveChanges();
+  /**
+   * Whether responses can be read straight from the connection with {@link #callStream(Map)}.
+   */
+  public boolean streamsResponses() {
+    return httpTransport != null;
+  }
+
+  /**
+   * Posts the request and returns the raw response envelope, which the caller must close. Only available with the
+   * HTTP transport.
+   */
+  public InputStream callStream(Map<String, String> variables) throws Exception {
+    if (httpTransport == null) {
+      throw new IllegalStateException("Response streams need the " + SoapClientConfig.TRANSPORT_HTTP + " transport");
+    }
+    log.debug("invoking at: " + LocalDateTime.now());
+    return resilience.execute(() -> postMetered(variables));
+  }
+
+  /**
+   * Whether calls should go through {@link #callAsync(Map)}, that is, whether an in-flight limit is configured.
+   */
+  public boolean invokesAsync() {
+    return inFlightLimiter != null;
+  }
+
+  /**
+   * Starts a call without blocking the caller. When the endpoint already has its maximum of calls in flight the
+   * returned future fails straight away with a {@link RejectedExecutionException}.
+   */
+  public CompletableFuture<SOAPMessage> callAsync(Map<String, String> variables) {
+    return limited(() -> resilience.executeCompletionStage(() -> invokeAsync(variables)));
+  }
+
+  /**
+   * The asynchronous counterpart of {@link #callStream(Map)}.
+   */
+  public CompletableFuture<InputStream> callStreamAsync(Map<String, String> variables) {
+    if (httpTransport == null) {
+      throw new IllegalStateException("Response streams need the " + SoapClientConfig.TRANSPORT_HTTP + " transport");
+    }
+    return limited(() -> resilience.executeCompletionStage(() -> CompletableFuture.supplyAsync(() -> {
+      try {
+        return postMetered(variables);
+      } catch (IOException | SOAPException e) {
+        throw new CompletionException(e);
+      }
+    }, executor.io())));
+  }
+
+  private <T> CompletableFuture<T> limited(Supplier<CompletionStage<T>> call) {
+    if (inFlightLimiter == null) {
+      throw new IllegalStateException("Asynchronous calls need " + SoapClientConfig.MAX_IN_FLIGHT_REQUESTS);
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    if (!inFlightLimiter.tryAcquire()) {
+      result.completeExceptionally(new RejectedExecutionException(inFlightLimiter + " reached"));
+      return result;
+    }
+    log.debug("invoking asynchronously at: " + LocalDateTime.now());
+    try {
+      call.get().whenComplete((response, error) -> {
+        inFlightLimiter.release();
+        if (error != null) {
+          result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+        } else {
+          result.complete(response);
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlightLimiter.release();
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private SOAPMessage invoke(Map<String, String> variables)
+      throws SOAPException, IOException, InterruptedException {
+    if (httpTransport != null) {
+      return invokeHttp(variables);
+    }
+    SOAPMessage message = requestTemplate.newMessage(messageFactory, variables);
+
+    Dispatch<SOAPMessage> dispatch = dispatchPool.borrow();
+    try {
+      long start = System.nanoTime();
+      SOAPMessage response = dispatch.invoke(message);
+      metrics.recordCall(start);
+      recordResponseBytes(dispatch.getResponseContext());
+      return response;
+    } finally {
+      dispatchPool.release(dispatch);
+    }
+  }
+
+  private CompletableFuture<SOAPMessage> invokeAsync(Map<String, String> variables) {
+    if (httpTransport != null) {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return invokeHttp(variables);
+        } catch (IOException | SOAPException e) {
+          throw new CompletionException(e);
+        }
+      }, executor.io());
+    }
+    CompletableFuture<SOAPMessage> result = new CompletableFuture<>();
+    try {
+      SOAPMessage message = requestTemplate.newMessage(messageFactory, variables);
+      Dispatch<SOAPMessage> dispatch = dispatchPool.borrow();
+      try {
+        long start = System.nanoTime();
+        // the request context is read when the call starts, the instance can serve another call right away
+        dispatch.invokeAsync(message, response -> {
+          try {
+            SOAPMessage soapResponse = response.get();
+            metrics.recordCall(start);
+            recordResponseBytes(response.getContext());
+            result.complete(soapResponse);
+          } catch (ExecutionException e) {
+            result.completeExceptionally(e.getCause());
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+          }
+        });
+      } finally {
+        dispatchPool.release(dispatch);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+    } catch (SOAPException | IOException | RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private SOAPMessage invokeHttp(Map<String, String> variables) throws SOAPException, IOException {
+    long start = System.nanoTime();
+    try (HttpSoapTransport.Response response = httpTransport.post(requestTemplate.render(variables))) {
+      metrics.recordCall(start);
+      MimeHeaders headers = new MimeHeaders();
+      // without a charset the parser takes the encoding from the XML declaration
+      headers.addHeader("Content-Type", response.getContentType() != null ? response.getContentType() : "text/xml");
+      SOAPMessage message = messageFactory.createMessage(headers, response);
+      // SAAJ parses lazily, the body has to be read before the stream is closed
+      SOAPBody body = message.getSOAPBody();
+      // and so are the parts of a multipart response: with mimepull they are spooled to temporary files
+      message.countAttachments();
+      metrics.recordResponseBytes(response.getBytesRead());
+      if (body.hasFault()) {
+        throw new SOAPException("SOAP fault: " + body.getFault().getFaultString());
+      }
+      return message;
+    }
+  }
+
+  /**
+   * Posts the request, returning a response stream that reports its size once closed.
+   */
+  private InputStream postMetered(Map<String, String> variables) throws IOException, SOAPException {
+    long start = System.nanoTime();
+    HttpSoapTransport.Response response = httpTransport.post(requestTemplate.render(variables));
+    metrics.recordCall(start);
+    return new FilterInputStream(response) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          metrics.recordResponseBytes(response.getBytesRead());
+        }
+      }
+    };
+  }
+
+  /**
+   * JAX-WS does not expose the bytes it read: the Content-Length header is all there is, missing from chunked
+   * responses.
+   */
+  private void recordResponseBytes(Map<String, Object> responseContext) {
+    Object headers = responseContext == null ? null : responseContext.get(MessageContext.HTTP_RESPONSE_HEADERS);
+    if (!(headers instanceof Map)) {
+      return;
+    }
+    for (Map.Entry<?, ?> header : ((Map<?, ?>) headers).entrySet()) {
+      if ("Content-Length".equalsIgnoreCase(String.valueOf(header.getKey())) && header.getValue() instanceof List
+          && !((List<?>) header.getValue()).isEmpty()) {
+        try {
+          metrics.recordResponseBytes(Long.parseLong(String.valueOf(((List<?>) header.getValue()).get(0)).trim()));
+        } catch (NumberFormatException e) {
+          log.debug("Unexpected Content-Length {}", header.getValue());
+        }
+        return;
+      }
+    }
+  }
+
+  private void releaseEndpoint() {
+    if (holdsEndpoint) {
+      resilience.close();
+      if (inFlightLimiter != null) {
+        inFlightLimiter.close();
+      }
+      holdsEndpoint = false;
+    }
+  }
 
-    return dispatch.invoke(message);
+  int dispatchesCreated() {
+    return dispatchPool.created();
   }
 
   public void stop() {
-    executor.shutdown();
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+    releaseEndpoint();
+    if (ownsMetrics) {
+      metrics.release();
+    }
   }
 
 }
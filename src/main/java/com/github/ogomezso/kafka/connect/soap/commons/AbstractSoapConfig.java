@@ -19,6 +19,8 @@ import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Importance;
 import org.apache.kafka.common.config.ConfigDef.Type;
 
+import com.github.ogomezso.kafka.connect.soap.model.ValueFormat;
+
 import java.util.Collections;
 import java.util.Map;
 
@@ -35,38 +37,192 @@ public class AbstractSoapConfig extends AbstractConfig {
   *
   *  */
 
+  public static final String ADAPTIVE_POLLING = "adaptivePolling";
+  public static final String ATTACHMENT_DIRECTORY = "attachmentDirectory";
+  public static final String CHANGE_CAPTURE = "changeCapture";
+  public static final String CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = "circuitBreakerFailureRateThreshold";
+  public static final String CIRCUIT_BREAKER_MINIMUM_CALLS = "circuitBreakerMinimumCalls";
+  public static final String CIRCUIT_BREAKER_SLIDING_WINDOW = "circuitBreakerSlidingWindowSeconds";
+  public static final String CIRCUIT_BREAKER_WAIT_IN_OPEN_STATE = "circuitBreakerWaitInOpenState";
   public static final String CONNECTION_TIMEOUT = "connectionTimeOut";
+  public static final String DISPATCH_POOL_SIZE = "dispatchPoolSize";
+  public static final String ENDPOINT_MAX_CONCURRENT_CALLS = "endpointMaxConcurrentCalls";
+  public static final String ENDPOINT_PERMIT_TIMEOUT = "endpointPermitTimeout";
+  public static final String ENDPOINT_RATE_LIMIT = "endpointRateLimit";
   public static final String ENDPOINT_URL = "endpointUrl";
+  public static final String MAX_IN_FLIGHT_REQUESTS = "maxInFlightRequests";
+  public static final String MAX_PAGES = "maxPages";
+  public static final String MAX_POLL_INTERVAL = "maxPollInterval";
+  public static final String MIN_POLL_INTERVAL = "minPollInterval";
+  public static final String PAGE_PREFETCH = "pagePrefetch";
+  public static final String PAGE_TOKEN_PATH = "pageTokenPath";
+  public static final String POLL_BACKOFF_MULTIPLIER = "pollBackoffMultiplier";
   public static final String POLL_INTERVAL = "pollInterval";
   public static final String PORT_NAME = "portName";
+  public static final String REQUEST_COMPRESSION = "requestCompression";
+  public static final String COMPRESSION_DEFLATE = "DEFLATE";
+  public static final String COMPRESSION_GZIP = "GZIP";
+  public static final String COMPRESSION_NONE = "NONE";
+  public static final String REQUEST_COMPRESSION_THRESHOLD = "requestCompressionThreshold";
+  public static final String REQUEST_QUOTA = "requestQuota";
   public static final String REQUEST_TIMEOUT = "requestTimeOut";
+  public static final String REQUEST_WEIGHT = "requestWeight";
+  public static final String RESPONSE_COMPRESSION = "responseCompression";
   public static final String SERVICE_NAME = "serviceName";
   public static final String SOAP_ACTION = "SOAPAction";
+  public static final String SPLIT_ELEMENT_PATH = "splitElementPath";
+  public static final String SPLIT_ITEM_KEY = "splitItemKey";
+  public static final String SUPPRESS_UNCHANGED = "suppressUnchanged";
   public static final String TARGET_NAMESPACE = "targetNameSpace";
   public static final String TOPIC_PREFIX = "topicPrefix";
   public static final String TOPIC = "topic";
+  public static final String TRANSPORT = "transport";
+  public static final String TRANSPORT_HTTP = "HTTP";
+  public static final String TRANSPORT_JAXWS = "JAXWS";
+  public static final String VALUE_FORMAT = "valueFormat";
+  public static final String WATERMARK_INITIAL_VALUE = "watermarkInitialValue";
+  public static final String WATERMARK_PATH = "watermarkPath";
 
+  private static final String ADAPTIVE_POLLING_DOC = "Adapt the interval to the data: shorten it while consecutive " +
+                                                         "responses differ and lengthen it while they are identical, " +
+                                                         "within minPollInterval and maxPollInterval. Failed calls " +
+                                                         "back off up to maxPollInterval either way";
+  private static final String ATTACHMENT_DIRECTORY_DOC = "Directory, local or a mounted blob volume, MTOM/XOP " +
+                                                             "attachments are streamed to, one subdirectory per " +
+                                                             "request file. The record then carries the path, size, " +
+                                                             "sha256 and contentType of each attachment instead of its " +
+                                                             "content. Empty leaves attachments as they are";
+  private static final String CHANGE_CAPTURE_DOC = "Compare the items of a split response with the previous response " +
+                                                       "and only emit inserted and changed items, plus a tombstone " +
+                                                       "for every deleted one. Requires splitElementPath and " +
+                                                       "splitItemKey. The comparison state is kept in memory only";
+  private static final String CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD_DOC = "Failure percentage of the calls to an " +
+                                                                               "endpoint in the sliding window that " +
+                                                                               "opens its circuit breaker";
+  private static final String CIRCUIT_BREAKER_MINIMUM_CALLS_DOC = "Calls the sliding window must hold before the " +
+                                                                      "failure rate is evaluated";
+  private static final String CIRCUIT_BREAKER_SLIDING_WINDOW_DOC = "Length, in seconds, of the window the failure " +
+                                                                       "rate is computed over. 0 uses three " +
+                                                                       "connection timeouts";
+  private static final String CIRCUIT_BREAKER_WAIT_IN_OPEN_STATE_DOC = "Time, in milliseconds, an open circuit " +
+                                                                           "breaker refuses calls before letting a " +
+                                                                           "few through to probe the endpoint";
   private static final String CONNECTION_TIMEOUT_DOC = " SOAP Service Connection timeout in milliseconds";
+  private static final String DISPATCH_POOL_SIZE_DOC = "Maximum number of JAX-WS Dispatch instances a client keeps " +
+                                                           "for concurrent calls";
+  private static final String ENDPOINT_MAX_CONCURRENT_CALLS_DOC = "Maximum number of calls running at once " +
+                                                                      "against one endpoint URL, shared by every " +
+                                                                      "task of the worker. 0 means no limit";
+  private static final String ENDPOINT_PERMIT_TIMEOUT_DOC = "Time, in milliseconds, a call waits for a rate limit " +
+                                                                "or concurrency permit before failing";
+  private static final String ENDPOINT_RATE_LIMIT_DOC = "Maximum number of calls per second against one endpoint " +
+                                                            "URL, shared by every task of the worker. 0 means no " +
+                                                            "limit";
   private static final String ENDPOINT_URL_DOC = "Endpoint url for a service";
+  private static final String MAX_IN_FLIGHT_REQUESTS_DOC = "Maximum number of asynchronous calls outstanding at " +
+                                                               "once against one endpoint URL, shared by every " +
+                                                               "request calling it. A cycle finding it reached is " +
+                                                               "skipped. Each call in flight still blocks an I/O " +
+                                                               "thread of the task until its response is read. 0 " +
+                                                               "keeps the calls synchronous, each one holding an " +
+                                                               "executor thread for its whole round trip";
+  private static final String MAX_PAGES_DOC = "Maximum number of pages requested in one poll cycle";
+  private static final String MAX_POLL_INTERVAL_DOC = "Longest interval, in milliseconds, failed or unchanged calls " +
+                                                          "back off to";
+  private static final String MIN_POLL_INTERVAL_DOC = "Shortest interval, in milliseconds, adaptive polling goes " +
+                                                          "down to";
+  private static final String PAGE_PREFETCH_DOC = "Request the next page while the current one is being mapped";
+  private static final String PAGE_TOKEN_PATH_DOC = "XPath, relative to the response payload element, selecting the " +
+                                                        "next page token. While it selects a value the next page is " +
+                                                        "requested with ${pageToken} set to it and ${pageNumber} " +
+                                                        "increased, each page becoming a record as it arrives. Empty " +
+                                                        "disables pagination";
+  private static final String POLL_BACKOFF_MULTIPLIER_DOC = "Factor the interval is multiplied by on every failed " +
+                                                                "or unchanged call, and divided by on every changed " +
+                                                                "one";
   private static final String POLL_INTERVAL_DOC = "Time between service calls in milliseconds";
   private static final String PORT_NAME_DOC = "Port Name for a service";
+  private static final String REQUEST_COMPRESSION_DOC = "Content-Encoding (NONE, GZIP or DEFLATE) of request bodies " +
+                                                            "over the HTTP transport. The service must accept it";
+  private static final String REQUEST_COMPRESSION_THRESHOLD_DOC = "Smallest request body, in bytes, compressed " +
+                                                                      "when requestCompression is set";
+  private static final String REQUEST_QUOTA_DOC = "Maximum number of records of one request waiting to be polled by " +
+                                                      "Connect. Calls are skipped while it is reached. 0 means no quota";
   private static final String REQUEST_TIMEOUT_DOC = "SOAP Request Timeout in Milliseconds";
+  private static final String REQUEST_WEIGHT_DOC = "Relative cost of a call of the request, used to balance the " +
+                                                       "requests over the tasks until its latency has been measured";
+  private static final String RESPONSE_COMPRESSION_DOC = "Send Accept-Encoding: gzip, deflate over the HTTP " +
+                                                             "transport and decompress responses while they are read";
   private static final String SERVICE_NAME_DOC = "Service Name for SOAP will be invoked";
   private static final String SOAP_ACTION_DOC = "SOAP Action for a message";
+  private static final String SPLIT_ELEMENT_PATH_DOC = "Slash separated local names, relative to the response payload " +
+                                                           "element, of a repeating element (e.g. items/item, * " +
+                                                           "matches any name). Every match becomes a record of its " +
+                                                           "own. Empty emits the whole response as one record";
+  private static final String SPLIT_ITEM_KEY_DOC = "Attribute or child element of a split item whose value is the " +
+                                                       "item id in the record key. Empty uses the item position";
+  private static final String SUPPRESS_UNCHANGED_DOC = "Skip a response whose content fingerprint matches the last " +
+                                                           "one emitted for the request. The fingerprint is kept in " +
+                                                           "the source offset. Not applied to paged requests";
   private static final String TARGET_NAMESPACE_DOC = "Target Namespace for the SOAP Client";
   private static final String TOPIC_PREFIX_DOC = "The prefix that is added to each topic name.";
   private static final String TOPIC_DOC = "Topic to send events to";
+  private static final String TRANSPORT_DOC = "JAXWS calls the service through a JAX-WS Dispatch. HTTP posts the " +
+                                                  "request file as is over a keep-alive connection and, for requests " +
+                                                  "without watermark, paging, split or change detection, maps the " +
+                                                  "response straight from the socket";
+  private static final String VALUE_FORMAT_DOC = "Record value format: JSON_STRING wraps the response as a JSON string " +
+                                                     "in a data field, STRUCT emits a nested Struct whose schema is " +
+                                                     "inferred from the response and cached per request type";
+  private static final String WATERMARK_INITIAL_VALUE_DOC = "Watermark used until the first one is read from a " +
+                                                                "response or restored from the committed offset";
+  private static final String WATERMARK_PATH_DOC = "XPath, relative to the response payload element, selecting the " +
+                                                       "watermark (e.g. a timestamp or sequence id) of a response. The " +
+                                                       "highest value found is stored in the source offset and " +
+                                                       "replaces ${watermark} in the next request. Prefixes are not " +
+                                                       "bound: use local-name() for namespaced elements. Empty " +
+                                                       "disables incremental polling";
 
+  private final String attachmentDirectory;
+  private final Boolean adaptivePolling;
+  private final Boolean changeCapture;
+  private final Double circuitBreakerFailureRateThreshold;
+  private final Integer circuitBreakerMinimumCalls;
+  private final Integer circuitBreakerSlidingWindowSeconds;
+  private final Long circuitBreakerWaitInOpenState;
   private final Long connectionTimeOut;
+  private final Integer dispatchPoolSize;
+  private final Integer endpointMaxConcurrentCalls;
+  private final Long endpointPermitTimeout;
+  private final Integer endpointRateLimit;
   private final String endpointUrl;
+  private final Integer maxInFlightRequests;
+  private final Integer maxPages;
+  private final Long maxPollInterval;
+  private final Long minPollInterval;
+  private final Boolean pagePrefetch;
+  private final String pageTokenPath;
+  private final Double pollBackoffMultiplier;
   private final String portName;
   private final Long pollIntervalSeconds;
+  private final String requestCompression;
+  private final Integer requestCompressionThreshold;
+  private final Integer requestQuota;
   private final Long requestTimeout;
+  private final Double requestWeight;
+  private final Boolean responseCompression;
   private final String serviceName;
   private final String soapAction;
+  private final String splitElementPath;
+  private final String splitItemKey;
+  private final Boolean suppressUnchanged;
   private final String targetNameSpace;
   private final String topicPrefix;
   private final String topic;
+  private final String transport;
+  private final String valueFormat;
+  private final String watermarkInitialValue;
+  private final String watermarkPath;
 
   public AbstractSoapConfig(ConfigDef definition, Map<?, ?> originals) {
     this(definition, originals, Collections.emptyMap(), true);
@@ -77,30 +233,105 @@ public class AbstractSoapConfig extends AbstractConfig {
     // TODO configprovider & logging
 
     super(definition, originals);
+    adaptivePolling = this.getBoolean(ADAPTIVE_POLLING);
+    attachmentDirectory = this.getString(ATTACHMENT_DIRECTORY);
+    changeCapture = this.getBoolean(CHANGE_CAPTURE);
+    circuitBreakerFailureRateThreshold = this.getDouble(CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD);
+    circuitBreakerMinimumCalls = this.getInt(CIRCUIT_BREAKER_MINIMUM_CALLS);
+    circuitBreakerSlidingWindowSeconds = this.getInt(CIRCUIT_BREAKER_SLIDING_WINDOW);
+    circuitBreakerWaitInOpenState = this.getLong(CIRCUIT_BREAKER_WAIT_IN_OPEN_STATE);
     connectionTimeOut = this.getLong(CONNECTION_TIMEOUT);
+    dispatchPoolSize = this.getInt(DISPATCH_POOL_SIZE);
+    endpointMaxConcurrentCalls = this.getInt(ENDPOINT_MAX_CONCURRENT_CALLS);
+    endpointPermitTimeout = this.getLong(ENDPOINT_PERMIT_TIMEOUT);
+    endpointRateLimit = this.getInt(ENDPOINT_RATE_LIMIT);
     endpointUrl = this.getString(ENDPOINT_URL);
+    maxInFlightRequests = this.getInt(MAX_IN_FLIGHT_REQUESTS);
+    maxPages = this.getInt(MAX_PAGES);
+    maxPollInterval = this.getLong(MAX_POLL_INTERVAL);
+    minPollInterval = this.getLong(MIN_POLL_INTERVAL);
+    pagePrefetch = this.getBoolean(PAGE_PREFETCH);
+    pageTokenPath = this.getString(PAGE_TOKEN_PATH);
+    pollBackoffMultiplier = this.getDouble(POLL_BACKOFF_MULTIPLIER);
     portName = this.getString(PORT_NAME);
     pollIntervalSeconds = this.getLong(POLL_INTERVAL);
+    requestCompression = this.getString(REQUEST_COMPRESSION);
+    requestCompressionThreshold = this.getInt(REQUEST_COMPRESSION_THRESHOLD);
+    requestQuota = this.getInt(REQUEST_QUOTA);
     requestTimeout = this.getLong(REQUEST_TIMEOUT);
+    requestWeight = this.getDouble(REQUEST_WEIGHT);
+    responseCompression = this.getBoolean(RESPONSE_COMPRESSION);
     serviceName = this.getString(SERVICE_NAME);
     soapAction = this.getString(SOAP_ACTION);
+    splitElementPath = this.getString(SPLIT_ELEMENT_PATH);
+    splitItemKey = this.getString(SPLIT_ITEM_KEY);
+    suppressUnchanged = this.getBoolean(SUPPRESS_UNCHANGED);
     targetNameSpace = this.getString(TARGET_NAMESPACE);
     topicPrefix = this.getString(TOPIC_PREFIX);
     topic = this.getString(TOPIC);
+    transport = this.getString(TRANSPORT);
+    valueFormat = this.getString(VALUE_FORMAT);
+    watermarkInitialValue = this.getString(WATERMARK_INITIAL_VALUE);
+    watermarkPath = this.getString(WATERMARK_PATH);
   }
 
   public static ConfigDef config() {
 
     return new ConfigDef()
+        .define(ADAPTIVE_POLLING, Type.BOOLEAN, false, Importance.MEDIUM, ADAPTIVE_POLLING_DOC)
+        .define(ATTACHMENT_DIRECTORY, Type.STRING, "", Importance.LOW, ATTACHMENT_DIRECTORY_DOC)
+        .define(CHANGE_CAPTURE, Type.BOOLEAN, false, Importance.MEDIUM, CHANGE_CAPTURE_DOC)
+        .define(CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD, Type.DOUBLE, 10.0, ConfigDef.Range.between(1.0, 100.0),
+            Importance.LOW, CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD_DOC)
+        .define(CIRCUIT_BREAKER_MINIMUM_CALLS, Type.INT, 3, ConfigDef.Range.atLeast(1), Importance.LOW,
+            CIRCUIT_BREAKER_MINIMUM_CALLS_DOC)
+        .define(CIRCUIT_BREAKER_SLIDING_WINDOW, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW,
+            CIRCUIT_BREAKER_SLIDING_WINDOW_DOC)
+        .define(CIRCUIT_BREAKER_WAIT_IN_OPEN_STATE, Type.LONG, 60000, ConfigDef.Range.atLeast(1), Importance.LOW,
+            CIRCUIT_BREAKER_WAIT_IN_OPEN_STATE_DOC)
         .define(CONNECTION_TIMEOUT, Type.LONG, 30000, Importance.MEDIUM, CONNECTION_TIMEOUT_DOC)
+        .define(DISPATCH_POOL_SIZE, Type.INT, 1, ConfigDef.Range.atLeast(1), Importance.LOW, DISPATCH_POOL_SIZE_DOC)
+        .define(ENDPOINT_MAX_CONCURRENT_CALLS, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW,
+            ENDPOINT_MAX_CONCURRENT_CALLS_DOC)
+        .define(ENDPOINT_PERMIT_TIMEOUT, Type.LONG, 5000, ConfigDef.Range.atLeast(0), Importance.LOW,
+            ENDPOINT_PERMIT_TIMEOUT_DOC)
+        .define(ENDPOINT_RATE_LIMIT, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW, ENDPOINT_RATE_LIMIT_DOC)
         .define(ENDPOINT_URL, Type.STRING, Importance.HIGH, ENDPOINT_URL_DOC)
+        .define(MAX_IN_FLIGHT_REQUESTS, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW,
+            MAX_IN_FLIGHT_REQUESTS_DOC)
+        .define(MAX_PAGES, Type.INT, 1000, ConfigDef.Range.atLeast(1), Importance.LOW, MAX_PAGES_DOC)
+        .define(MAX_POLL_INTERVAL, Type.LONG, 300000, ConfigDef.Range.atLeast(0), Importance.LOW,
+            MAX_POLL_INTERVAL_DOC)
+        .define(MIN_POLL_INTERVAL, Type.LONG, 1000, ConfigDef.Range.atLeast(0), Importance.LOW, MIN_POLL_INTERVAL_DOC)
+        .define(PAGE_PREFETCH, Type.BOOLEAN, true, Importance.LOW, PAGE_PREFETCH_DOC)
+        .define(PAGE_TOKEN_PATH, Type.STRING, "", Importance.MEDIUM, PAGE_TOKEN_PATH_DOC)
+        .define(POLL_BACKOFF_MULTIPLIER, Type.DOUBLE, 2.0, ConfigDef.Range.atLeast(1.0), Importance.LOW,
+            POLL_BACKOFF_MULTIPLIER_DOC)
         .define(PORT_NAME, Type.STRING, Importance.HIGH, PORT_NAME_DOC)
         .define(POLL_INTERVAL, Type.LONG, 6000, Importance.HIGH, POLL_INTERVAL_DOC)
+        .define(REQUEST_COMPRESSION, Type.STRING, COMPRESSION_NONE,
+            ConfigDef.ValidString.in(COMPRESSION_NONE, COMPRESSION_GZIP, COMPRESSION_DEFLATE), Importance.LOW,
+            REQUEST_COMPRESSION_DOC)
+        .define(REQUEST_COMPRESSION_THRESHOLD, Type.INT, 1024, ConfigDef.Range.atLeast(0), Importance.LOW,
+            REQUEST_COMPRESSION_THRESHOLD_DOC)
+        .define(REQUEST_QUOTA, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW, REQUEST_QUOTA_DOC)
         .define(REQUEST_TIMEOUT, Type.LONG, 30000, Importance.LOW, REQUEST_TIMEOUT_DOC)
+        .define(REQUEST_WEIGHT, Type.DOUBLE, 1.0, ConfigDef.Range.atLeast(0.0), Importance.LOW, REQUEST_WEIGHT_DOC)
+        .define(RESPONSE_COMPRESSION, Type.BOOLEAN, false, Importance.LOW, RESPONSE_COMPRESSION_DOC)
         .define(SERVICE_NAME, Type.STRING, Importance.HIGH, SERVICE_NAME_DOC)
         .define(SOAP_ACTION, Type.STRING, "", Importance.HIGH, SOAP_ACTION_DOC)
+        .define(SPLIT_ELEMENT_PATH, Type.STRING, "", Importance.MEDIUM, SPLIT_ELEMENT_PATH_DOC)
+        .define(SPLIT_ITEM_KEY, Type.STRING, "", Importance.LOW, SPLIT_ITEM_KEY_DOC)
+        .define(SUPPRESS_UNCHANGED, Type.BOOLEAN, false, Importance.MEDIUM, SUPPRESS_UNCHANGED_DOC)
         .define(TARGET_NAMESPACE, Type.STRING, Importance.HIGH, TARGET_NAMESPACE_DOC)
         .define(TOPIC_PREFIX, Type.STRING, "", Importance.HIGH, TOPIC_PREFIX_DOC)
-        .define(TOPIC, Type.STRING, Importance.HIGH, TOPIC_DOC);
+        .define(TOPIC, Type.STRING, Importance.HIGH, TOPIC_DOC)
+        .define(TRANSPORT, Type.STRING, TRANSPORT_JAXWS, ConfigDef.ValidString.in(TRANSPORT_JAXWS, TRANSPORT_HTTP),
+            Importance.LOW, TRANSPORT_DOC)
+        .define(VALUE_FORMAT, Type.STRING, ValueFormat.JSON_STRING.name(),
+            ConfigDef.ValidString.in(ValueFormat.JSON_STRING.name(), ValueFormat.STRUCT.name()), Importance.MEDIUM,
+            VALUE_FORMAT_DOC)
+        .define(WATERMARK_INITIAL_VALUE, Type.STRING, "", Importance.LOW, WATERMARK_INITIAL_VALUE_DOC)
+        .define(WATERMARK_PATH, Type.STRING, "", Importance.MEDIUM, WATERMARK_PATH_DOC);
   }
 }
@@ -0,0 +1,236 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.Measurable;
+import org.apache.kafka.common.metrics.MetricValueProvider;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Meter;
+import org.apache.kafka.common.metrics.stats.Percentile;
+import org.apache.kafka.common.metrics.stats.Percentiles;
+import org.apache.kafka.common.metrics.stats.Percentiles.BucketSizing;
+
+import com.github.ogomezso.kafka.connect.soap.scheduler.SharedExecutor;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+/**
+ * Metrics of one request file: call latency percentiles, response bytes, mapping time, records and errors by
+ * exception type in the {@value #REQUEST_GROUP} group, and the state of the client calling it, its endpoint's circuit
+ * breaker and the task executor, in the {@value #CLIENT_GROUP} group.
+ */
+public class RequestMetrics {
+
+  static final String REQUEST_GROUP = "request-metrics";
+  static final String CLIENT_GROUP = "client-metrics";
+  static final String REQUEST_TYPE_TAG = "request-type";
+  static final String EXCEPTION_TAG = "exception";
+
+  private static final int PERCENTILES_SIZE_IN_BYTES = 4000;
+  private static final long DEFAULT_MAX_LATENCY_MS = 60000L;
+
+  private final Metrics metrics;
+  private final boolean unregistered;
+  private final Map<String, String> tags;
+  private final String sensorPrefix;
+  private final Set<String> sensorNames = ConcurrentHashMap.newKeySet();
+  private final Sensor callLatency;
+  private final Sensor responseBytes;
+  private final Sensor mappingTime;
+  private final Sensor records;
+  private final MetricName callLatencyAvg;
+  private final MetricName mappingTimeAvg;
+
+  RequestMetrics(Metrics metrics, Map<String, String> taskTags, String requestType, long maxLatencyMs) {
+    this(metrics, false, taskTags, requestType, maxLatencyMs);
+  }
+
+  private RequestMetrics(Metrics metrics, boolean unregistered, Map<String, String> taskTags, String requestType,
+      long maxLatencyMs) {
+    this.metrics = metrics;
+    this.unregistered = unregistered;
+    Map<String, String> requestTags = new LinkedHashMap<>(taskTags);
+    requestTags.put(REQUEST_TYPE_TAG, requestType);
+    this.tags = Collections.unmodifiableMap(requestTags);
+    this.sensorPrefix = String.join(".", requestTags.values()) + ".";
+
+    this.callLatency = sensor("call-latency");
+    this.callLatencyAvg = name("call-latency-avg", "Average time in milliseconds a call takes to respond");
+    callLatency.add(callLatencyAvg, new Avg());
+    callLatency.add(name("call-latency-max", "Longest time in milliseconds a call took to respond"), new Max());
+    callLatency.add(new Percentiles(PERCENTILES_SIZE_IN_BYTES, maxLatencyMs > 0 ? maxLatencyMs : DEFAULT_MAX_LATENCY_MS,
+        BucketSizing.LINEAR,
+        new Percentile(name("call-latency-p50", "Median call latency in milliseconds"), 50),
+        new Percentile(name("call-latency-p95", "95th percentile of the call latency in milliseconds"), 95),
+        new Percentile(name("call-latency-p99", "99th percentile of the call latency in milliseconds"), 99)));
+
+    this.responseBytes = sensor("response-bytes");
+    responseBytes.add(name("response-bytes-avg", "Average size in bytes of a response"), new Avg());
+    responseBytes.add(name("response-bytes-max", "Largest response in bytes"), new Max());
+    responseBytes.add(new Meter(name("response-bytes-rate", "Response bytes read per second"),
+        name("response-bytes-total", "Response bytes read")));
+
+    this.mappingTime = sensor("mapping-time");
+    this.mappingTimeAvg = name("mapping-time-avg",
+        "Average time in milliseconds spent mapping a response to a record");
+    mappingTime.add(mappingTimeAvg, new Avg());
+    mappingTime.add(name("mapping-time-max", "Longest time in milliseconds spent mapping a response to a record"),
+        new Max());
+
+    this.records = sensor("records");
+    records.add(new Meter(name("records-rate", "Records emitted per second"),
+        name("records-total", "Records emitted")));
+  }
+
+  /**
+   * Metrics nobody reports, for a client or poller created without a task. Their registry is their own: the client or
+   * poller creating them {@link #release() releases} them when it stops.
+   */
+  public static RequestMetrics unregistered(String requestType) {
+    return new RequestMetrics(new Metrics(), true, Collections.emptyMap(), requestType, DEFAULT_MAX_LATENCY_MS);
+  }
+
+  /**
+   * Closes the registry of {@link #unregistered(String) unregistered} metrics; the metrics of a task are closed with it.
+   */
+  public void release() {
+    if (unregistered) {
+      metrics.close();
+    }
+  }
+
+  public void recordCall(long startNanos) {
+    callLatency.record(millisSince(startNanos));
+  }
+
+  public void recordResponseBytes(long bytes) {
+    responseBytes.record(bytes);
+  }
+
+  public void recordMapping(long startNanos) {
+    mappingTime.record(millisSince(startNanos));
+  }
+
+  public void recordRecord() {
+    records.record();
+  }
+
+  /**
+   * Counts a failed cycle under the simple name of the class of its root cause, one metric per class seen, so a fault
+   * counts the same whether the call was synchronous or wrapped by an asynchronous one.
+   */
+  public void recordError(Throwable error) {
+    String exception = rootCause(error).getClass().getSimpleName();
+    Sensor errors = metrics.getSensor(sensorPrefix + "errors." + exception);
+    if (errors == null) {
+      errors = sensor("errors." + exception);
+      Map<String, String> errorTags = new LinkedHashMap<>(tags);
+      errorTags.put(EXCEPTION_TAG, exception);
+      errors.add(new Meter(
+          metrics.metricName("errors-rate", REQUEST_GROUP, "Failed calls per second", errorTags),
+          metrics.metricName("errors-total", REQUEST_GROUP, "Failed calls", errorTags)));
+    }
+    errors.record();
+  }
+
+  public void registerCircuitBreaker(CircuitBreaker circuitBreaker) {
+    gauge("circuit-breaker-state", "State of the endpoint circuit breaker: CLOSED, OPEN, HALF_OPEN...",
+        (Gauge<String>) (config, now) -> circuitBreaker.getState().name());
+    gauge("circuit-breaker-failure-rate", "Failure percentage of the calls to the endpoint in the sliding window, "
+        + "-1 until there are enough calls", (Measurable) (config, now) -> circuitBreaker.getMetrics().getFailureRate());
+    gauge("circuit-breaker-not-permitted-calls", "Calls refused by the open circuit breaker",
+        (Measurable) (config, now) -> circuitBreaker.getMetrics().getNumberOfNotPermittedCalls());
+  }
+
+  public void registerExecutor(SharedExecutor executor) {
+    gauge("executor-queue-depth", "Cycles waiting for a thread of the task executor",
+        (Measurable) (config, now) -> executor.queueDepth());
+    gauge("executor-active-threads", "Threads of the task executor running a cycle",
+        (Measurable) (config, now) -> executor.activeThreads());
+  }
+
+  /**
+   * Average milliseconds a cycle of the request keeps the task busy, calling and mapping, or NaN before the first call.
+   */
+  public double busyMillisPerCall() {
+    double latency = value(callLatencyAvg);
+    double mapping = value(mappingTimeAvg);
+    return Double.isNaN(mapping) ? latency : latency + mapping;
+  }
+
+  /**
+   * Unregisters every sensor and metric of the request, for a request that goes away while its task keeps running.
+   */
+  void close() {
+    sensorNames.forEach(metrics::removeSensor);
+    new ArrayList<>(metrics.metrics().keySet()).stream()
+        .filter(name -> name.tags().entrySet().containsAll(tags.entrySet()))
+        .forEach(metrics::removeMetric);
+  }
+
+  Metrics registry() {
+    return metrics;
+  }
+
+  Map<String, String> tags() {
+    return tags;
+  }
+
+  private void gauge(String name, String description, MetricValueProvider<?> value) {
+    MetricName metricName = metrics.metricName(name, CLIENT_GROUP, description, tags);
+    // a client started again may guard its endpoint with a new circuit breaker: report the current one
+    metrics.removeMetric(metricName);
+    metrics.addMetric(metricName, value);
+  }
+
+  private double value(MetricName name) {
+    Object value = metrics.metric(name).metricValue();
+    return value instanceof Double ? (Double) value : Double.NaN;
+  }
+
+  private Sensor sensor(String name) {
+    sensorNames.add(sensorPrefix + name);
+    return metrics.sensor(sensorPrefix + name);
+  }
+
+  private MetricName name(String name, String description) {
+    return metrics.metricName(name, REQUEST_GROUP, description, tags);
+  }
+
+  static Throwable rootCause(Throwable error) {
+    Throwable root = error;
+    while (root.getCause() != null && root.getCause() != root) {
+      root = root.getCause();
+    }
+    return root;
+  }
+
+  private static double millisSince(long startNanos) {
+    return (System.nanoTime() - startNanos) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
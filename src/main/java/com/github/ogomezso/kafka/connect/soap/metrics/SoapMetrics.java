@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.metrics.KafkaMetricsContext;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.utils.Time;
+
+/**
+ * The metrics of one task, registered in a Kafka {@link Metrics} registry of their own and reported through JMX as
+ * {@code kafka.connect.soap:type=<group>,connector=<name>,task=<index>,request-type=<request>}. Closing it unregisters
+ * every MBean of the task.
+ * <p>
+ * The requests of every running task are also kept in a worker-wide index, so the connector can balance its tasks by
+ * what their requests actually cost.
+ */
+public class SoapMetrics implements AutoCloseable {
+
+  public static final String JMX_PREFIX = "kafka.connect.soap";
+  static final String CONNECTOR_TAG = "connector";
+  static final String TASK_TAG = "task";
+
+  private static final ConcurrentMap<String, RequestMetrics> RUNNING = new ConcurrentHashMap<>();
+
+  private final Metrics metrics;
+  private final Map<String, String> tags;
+  private final String connectorName;
+  private final Map<String, RequestMetrics> requests = new ConcurrentHashMap<>();
+
+  /**
+   * Metrics of the task of the connector at {@code taskIndex}, the index the connector gave it, so its MBean names stay
+   * the same when it restarts.
+   */
+  public SoapMetrics(String connectorName, int taskIndex) {
+    this(new Metrics(new MetricConfig(), Collections.singletonList(new JmxReporter()), Time.SYSTEM,
+        new KafkaMetricsContext(JMX_PREFIX)), connectorName, taskIndex);
+  }
+
+  SoapMetrics(Metrics metrics, String connectorName, int taskIndex) {
+    this.metrics = metrics;
+    this.connectorName = connectorName == null ? "" : connectorName;
+    Map<String, String> taskTags = new LinkedHashMap<>();
+    taskTags.put(CONNECTOR_TAG, this.connectorName);
+    taskTags.put(TASK_TAG, String.valueOf(taskIndex));
+    this.tags = Collections.unmodifiableMap(taskTags);
+  }
+
+  /**
+   * The metrics of a request file, latency percentiles going up to {@code maxLatencyMs}.
+   */
+  public RequestMetrics request(String requestType, long maxLatencyMs) {
+    RequestMetrics request = new RequestMetrics(metrics, tags, requestType, maxLatencyMs);
+    requests.put(requestType, request);
+    RUNNING.put(key(connectorName, requestType), request);
+    return request;
+  }
+
+  /**
+   * Unregisters the metrics of a request file the task no longer calls.
+   */
+  public void remove(String requestType) {
+    RequestMetrics request = requests.remove(requestType);
+    if (request != null) {
+      RUNNING.remove(key(connectorName, requestType), request);
+      request.close();
+    }
+  }
+
+  /**
+   * The metrics of a request of the connector, if one of its tasks runs it in this worker.
+   */
+  public static RequestMetrics running(String connectorName, String requestType) {
+    return RUNNING.get(key(connectorName == null ? "" : connectorName, requestType));
+  }
+
+  private static String key(String connectorName, String requestType) {
+    return connectorName + "/" + requestType;
+  }
+
+  Metrics registry() {
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    requests.forEach((requestType, request) -> RUNNING.remove(key(connectorName, requestType), request));
+    metrics.close();
+  }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import jakarta.xml.soap.AttachmentPart;
+import jakarta.xml.soap.SOAPBody;
+import jakarta.xml.soap.SOAPElement;
+import jakarta.xml.soap.SOAPException;
+import jakarta.xml.soap.SOAPMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams every MTOM/XOP attachment of a response to a file named after its SHA-256 and replaces its
+ * {@code xop:Include} with a reference to that file.
+ */
+@Slf4j
+public class AttachmentOffloader {
+
+  static final String XOP_NAMESPACE = "http://www.w3.org/2004/08/xop/include";
+  static final String PATH = "path";
+  static final String SIZE = "size";
+  static final String SHA_256 = "sha256";
+  static final String CONTENT_TYPE = "contentType";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path directory;
+
+  public AttachmentOffloader(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Offloads the attachments of the message and rewrites its body to refer to them. Returns how many were offloaded.
+   */
+  public int offload(SOAPMessage message, RecordKey recordKey) throws SOAPException, IOException {
+    if (message.countAttachments() == 0) {
+      return 0;
+    }
+    List<Element> includes = new ArrayList<>();
+    collectIncludes(message.getSOAPBody(), includes);
+    Path target = directory.resolve(StructInferrer.fieldName(requestName(recordKey.getRequestType())));
+    int offloaded = 0;
+    for (Element include : includes) {
+      AttachmentPart attachment = attachment(message, include);
+      if (attachment == null) {
+        log.warn("No attachment for {} in the response of {}", include.getAttribute("href"),
+            recordKey.getRequestType());
+        continue;
+      }
+      Files.createDirectories(target);
+      replace(include, store(attachment, target));
+      offloaded++;
+    }
+    return offloaded;
+  }
+
+  private static String requestName(String requestType) {
+    String name = requestType.substring(Math.max(requestType.lastIndexOf('/'), requestType.lastIndexOf('\\')) + 1);
+    return name.isEmpty() ? "request" : name;
+  }
+
+  private static void collectIncludes(Node parent, List<Element> includes) {
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() != Node.ELEMENT_NODE) {
+        continue;
+      }
+      if ("Include".equals(child.getLocalName()) && XOP_NAMESPACE.equals(child.getNamespaceURI())) {
+        includes.add((Element) child);
+      } else {
+        collectIncludes(child, includes);
+      }
+    }
+  }
+
+  private static AttachmentPart attachment(SOAPMessage message, Element include) throws SOAPException, IOException {
+    if (include instanceof SOAPElement) {
+      AttachmentPart part = message.getAttachment((SOAPElement) include);
+      if (part != null) {
+        return part;
+      }
+    }
+    String href = include.getAttribute("href");
+    if (!href.startsWith("cid:")) {
+      return null;
+    }
+    String contentId = URLDecoder.decode(href.substring(4), StandardCharsets.UTF_8.name());
+    Iterator<AttachmentPart> parts = message.getAttachments();
+    while (parts.hasNext()) {
+      AttachmentPart part = parts.next();
+      String id = part.getContentId();
+      if (id != null && contentId.equals(id.replaceAll("^<|>$", ""))) {
+        return part;
+      }
+    }
+    return null;
+  }
+
+  private AttachmentReference store(AttachmentPart attachment, Path target) throws SOAPException, IOException {
+    MessageDigest digest = sha256();
+    Path temp = Files.createTempFile(target, ".attachment-", ".tmp");
+    long size = 0;
+    try {
+      try (InputStream in = new DigestInputStream(attachment.getRawContent(), digest);
+           OutputStream out = Files.newOutputStream(temp)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+          out.write(buffer, 0, n);
+          size += n;
+        }
+      }
+      String hash = hex(digest.digest());
+      Path file = target.resolve(hash);
+      if (Files.exists(file)) {
+        // same content already stored
+        Files.delete(temp);
+      } else {
+        move(temp, file);
+      }
+      return new AttachmentReference(file.toAbsolutePath().toString(), size, hash, attachment.getContentType());
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Puts the reference fields where the include was, so the element holding the attachment maps to them.
+   */
+  private static void replace(Element include, AttachmentReference reference) {
+    Node parent = include.getParentNode();
+    Document document = include.getOwnerDocument();
+    parent.insertBefore(textElement(document, PATH, reference.path), include);
+    parent.insertBefore(textElement(document, SIZE, String.valueOf(reference.size)), include);
+    parent.insertBefore(textElement(document, SHA_256, reference.sha256), include);
+    if (reference.contentType != null) {
+      parent.insertBefore(textElement(document, CONTENT_TYPE, reference.contentType), include);
+    }
+    parent.removeChild(include);
+  }
+
+  private static Element textElement(Document document, String name, String text) {
+    Element element = document.createElementNS(null, name);
+    element.appendChild(document.createTextNode(text));
+    return element;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static final class AttachmentReference {
+
+    private final String path;
+    private final long size;
+    private final String sha256;
+    private final String contentType;
+
+    private AttachmentReference(String path, long size, String sha256, String contentType) {
+      this.path = path;
+      this.size = size;
+      this.sha256 = sha256;
+      this.contentType = contentType;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import javax.xml.XMLConstants;
+import java.util.Arrays;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import jakarta.xml.soap.SOAPBody;
+import jakarta.xml.soap.SOAPException;
+
+/**
+ * 64 bit FNV-1a hash of the canonical form of a response payload, taken in a single walk of its DOM without building
+ * any string. The canonical form ignores what does not change the content: namespace prefixes, attribute order,
+ * comments, processing instructions and surrounding whitespace of text.
+ */
+public final class ContentFingerprint {
+
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private static final int START = 1;
+  private static final int ATTRIBUTE = 2;
+  private static final int END = 3;
+  private static final int TEXT = 4;
+
+  private ContentFingerprint() {
+  }
+
+  public static String of(SOAPBody body) throws SOAPException {
+    return Long.toHexString(hash(StaxJsonConverter.payloadElement(body)));
+  }
+
+  /**
+   * Walks the element in document order without recursion, so a deeply nested payload cannot exhaust the stack.
+   */
+  public static long hash(Element element) {
+    long h = OFFSET_BASIS;
+    StringBuilder text = new StringBuilder();
+    Node node = element;
+    while (node != null) {
+      switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+          h = text(h, text);
+          h = mix(h, START);
+          h = mix(h, node.getNamespaceURI());
+          h = mix(h, localName(node));
+          h = attributes(h, node.getAttributes());
+          break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+          text.append(node.getNodeValue());
+          break;
+        default:
+          // comments and processing instructions are not content, entity references are walked into
+      }
+      Node next = node.getFirstChild();
+      while (next == null && node != null) {
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+          h = text(h, text);
+          h = mix(h, END);
+        }
+        if (node == element) {
+          node = null;
+        } else {
+          next = node.getNextSibling();
+          if (next == null) {
+            node = node.getParentNode();
+          }
+        }
+      }
+      node = next;
+    }
+    return h;
+  }
+
+  private static long attributes(long h, NamedNodeMap attributeNodes) {
+    int count = attributeNodes.getLength();
+    String[] attributes = new String[count];
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+      Attr attribute = (Attr) attributeNodes.item(i);
+      String ns = attribute.getNamespaceURI();
+      if (isNamespaceDeclaration(attribute, ns)) {
+        continue;
+      }
+      attributes[kept++] = (ns == null ? "" : ns) + '\u0000' + localName(attribute) + '\u0000' + attribute.getValue();
+    }
+    if (kept > 1) {
+      Arrays.sort(attributes, 0, kept);
+    }
+    for (int i = 0; i < kept; i++) {
+      h = mix(h, ATTRIBUTE);
+      h = mix(h, attributes[i]);
+    }
+    return h;
+  }
+
+  private static boolean isNamespaceDeclaration(Attr attribute, String ns) {
+    if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(ns)) {
+      return true;
+    }
+    // a document parsed without namespace awareness keeps the declarations as plain attributes
+    String name = attribute.getName();
+    return ns == null
+        && (XMLConstants.XMLNS_ATTRIBUTE.equals(name) || name.startsWith(XMLConstants.XMLNS_ATTRIBUTE + ":"));
+  }
+
+  private static String localName(Node node) {
+    if (node.getLocalName() != null) {
+      return node.getLocalName();
+    }
+    String name = node.getNodeName();
+    return name.substring(name.indexOf(':') + 1);
+  }
+
+  private static long text(long h, StringBuilder text) {
+    int start = 0;
+    int end = text.length();
+    while (start < end && Character.isWhitespace(text.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+      end--;
+    }
+    if (start < end) {
+      h = mix(h, TEXT);
+      h = mix(h, end - start);
+      for (int i = start; i < end; i++) {
+        h = mixChar(h, text.charAt(i));
+      }
+    }
+    text.setLength(0);
+    return h;
+  }
+
+  private static long mix(long h, String value) {
+    if (value == null) {
+      return mix(h, 0);
+    }
+    // the length keeps adjacent values from running into each other
+    h = mix(h, value.length());
+    for (int i = 0; i < value.length(); i++) {
+      h = mixChar(h, value.charAt(i));
+    }
+    return h;
+  }
+
+  private static long mix(long h, int value) {
+    for (int shift = 0; shift < 32; shift += 8) {
+      h ^= (value >>> shift) & 0xff;
+      h *= PRIME;
+    }
+    return h;
+  }
+
+  private static long mixChar(long h, char c) {
+    h ^= c & 0xff;
+    h *= PRIME;
+    h ^= c >>> 8;
+    h *= PRIME;
+    return h;
+  }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The items of the last response of a request, keyed by item id and holding a hash of each item's content, so a new
+ * response can be compared item by item.
+ * <p>
+ * Meant for hundreds of thousands of items, it keeps no object per entry: an open addressing table of primitive
+ * arrays (key hash, content hash, last cycle seen, key position) with linear probing, and every key as length
+ * prefixed UTF-8 in one byte arena. An entry costs about 50 bytes plus its key, against several hundred for a
+ * {@code HashMap<String, String>}.
+ * <p>
+ * Not thread safe: it belongs to the single poller of its request.
+ */
+public class ItemSnapshot {
+
+  public enum Change {
+    INSERT, UPDATE, UNCHANGED
+  }
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final long EMPTY = 0L;
+
+  private long[] keyHashes;
+  private long[] contentHashes;
+  private int[] seenCycles;
+  private int[] keyPositions;
+  private byte[] arena = new byte[INITIAL_CAPACITY * 16];
+  private int arenaSize;
+  private int garbage;
+  private int size;
+  private int cycle;
+
+  public ItemSnapshot() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Starts comparing a new response: items not put before {@link #removeUnseen} are the deleted ones.
+   */
+  public void beginCycle() {
+    cycle++;
+  }
+
+  /**
+   * What {@link #put} would tell, without recording anything.
+   */
+  public Change compare(String key, long contentHash) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    long keyHash = keyHash(keyBytes);
+    int mask = keyHashes.length - 1;
+    for (int slot = (int) mix(keyHash) & mask; keyHashes[slot] != EMPTY; slot = (slot + 1) & mask) {
+      if (keyHashes[slot] == keyHash && keyEquals(keyPositions[slot], keyBytes)) {
+        return contentHashes[slot] == contentHash ? Change.UNCHANGED : Change.UPDATE;
+      }
+    }
+    return Change.INSERT;
+  }
+
+  public Change put(String key, long contentHash) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    long keyHash = keyHash(keyBytes);
+    int mask = keyHashes.length - 1;
+    for (int slot = (int) mix(keyHash) & mask; ; slot = (slot + 1) & mask) {
+      if (keyHashes[slot] == EMPTY) {
+        if (size + 1 > keyHashes.length / 2) {
+          grow();
+          return put(key, contentHash);
+        }
+        keyHashes[slot] = keyHash;
+        contentHashes[slot] = contentHash;
+        seenCycles[slot] = cycle;
+        keyPositions[slot] = append(keyBytes);
+        size++;
+        return Change.INSERT;
+      }
+      if (keyHashes[slot] == keyHash && keyEquals(keyPositions[slot], keyBytes)) {
+        seenCycles[slot] = cycle;
+        if (contentHashes[slot] == contentHash) {
+          return Change.UNCHANGED;
+        }
+        contentHashes[slot] = contentHash;
+        return Change.UPDATE;
+      }
+    }
+  }
+
+  /**
+   * Removes every item not put since {@link #beginCycle}, handing its key to {@code removed}.
+   */
+  public void removeUnseen(Consumer<String> removed) {
+    int slot = 0;
+    while (slot < keyHashes.length) {
+      if (keyHashes[slot] != EMPTY && seenCycles[slot] != cycle) {
+        removed.accept(key(keyPositions[slot]));
+        delete(slot);
+        // the slot may now hold a shifted entry that needs checking too
+      } else {
+        slot++;
+      }
+    }
+    if (garbage > arenaSize / 2) {
+      compact();
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void delete(int slot) {
+    int mask = keyHashes.length - 1;
+    garbage += 4 + readLength(keyPositions[slot]);
+    size--;
+    // backward shift deletion keeps every probe sequence unbroken without tombstones
+    int hole = slot;
+    for (int next = (hole + 1) & mask; keyHashes[next] != EMPTY; next = (next + 1) & mask) {
+      int home = (int) mix(keyHashes[next]) & mask;
+      boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+      if (movable) {
+        keyHashes[hole] = keyHashes[next];
+        contentHashes[hole] = contentHashes[next];
+        seenCycles[hole] = seenCycles[next];
+        keyPositions[hole] = keyPositions[next];
+        hole = next;
+      }
+    }
+    keyHashes[hole] = EMPTY;
+  }
+
+  private void grow() {
+    long[] oldKeyHashes = keyHashes;
+    long[] oldContentHashes = contentHashes;
+    int[] oldSeenCycles = seenCycles;
+    int[] oldKeyPositions = keyPositions;
+    allocate(oldKeyHashes.length * 2);
+    int mask = keyHashes.length - 1;
+    for (int i = 0; i < oldKeyHashes.length; i++) {
+      if (oldKeyHashes[i] != EMPTY) {
+        int slot = (int) mix(oldKeyHashes[i]) & mask;
+        while (keyHashes[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keyHashes[slot] = oldKeyHashes[i];
+        contentHashes[slot] = oldContentHashes[i];
+        seenCycles[slot] = oldSeenCycles[i];
+        keyPositions[slot] = oldKeyPositions[i];
+      }
+    }
+  }
+
+  private void compact() {
+    byte[] compacted = new byte[Math.max(arenaSize - garbage, INITIAL_CAPACITY) * 2];
+    int position = 0;
+    for (int slot = 0; slot < keyHashes.length; slot++) {
+      if (keyHashes[slot] != EMPTY) {
+        int length = 4 + readLength(keyPositions[slot]);
+        System.arraycopy(arena, keyPositions[slot], compacted, position, length);
+        keyPositions[slot] = position;
+        position += length;
+      }
+    }
+    arena = compacted;
+    arenaSize = position;
+    garbage = 0;
+  }
+
+  private void allocate(int capacity) {
+    keyHashes = new long[capacity];
+    contentHashes = new long[capacity];
+    seenCycles = new int[capacity];
+    keyPositions = new int[capacity];
+  }
+
+  private int append(byte[] keyBytes) {
+    int needed = arenaSize + 4 + keyBytes.length;
+    if (needed > arena.length) {
+      arena = Arrays.copyOf(arena, Math.max(needed, arena.length * 2));
+    }
+    int position = arenaSize;
+    arena[position] = (byte) (keyBytes.length >>> 24);
+    arena[position + 1] = (byte) (keyBytes.length >>> 16);
+    arena[position + 2] = (byte) (keyBytes.length >>> 8);
+    arena[position + 3] = (byte) keyBytes.length;
+    System.arraycopy(keyBytes, 0, arena, position + 4, keyBytes.length);
+    arenaSize = needed;
+    return position;
+  }
+
+  private int readLength(int position) {
+    return ((arena[position] & 0xff) << 24) | ((arena[position + 1] & 0xff) << 16)
+        | ((arena[position + 2] & 0xff) << 8) | (arena[position + 3] & 0xff);
+  }
+
+  private boolean keyEquals(int position, byte[] keyBytes) {
+    if (readLength(position) != keyBytes.length) {
+      return false;
+    }
+    for (int i = 0; i < keyBytes.length; i++) {
+      if (arena[position + 4 + i] != keyBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String key(int position) {
+    return new String(arena, position + 4, readLength(position), StandardCharsets.UTF_8);
+  }
+
+  private static long keyHash(byte[] keyBytes) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : keyBytes) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    // zero marks an empty slot
+    return h == EMPTY ? 1L : h;
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
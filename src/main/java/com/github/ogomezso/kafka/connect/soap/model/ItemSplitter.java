@@ -0,0 +1,240 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+
+import jakarta.xml.soap.SOAPBody;
+import jakarta.xml.soap.SOAPException;
+
+/**
+ * Finds the repeating elements of a response that become records of their own. Items are located by local name along
+ * a fixed path, so finding them is a walk down the payload and the items are returned as views over it, never copied.
+ * <p>
+ * A raw response stream can be split too: each item is then read into a small document of its own and handed over
+ * before the next one is read, so memory is bounded by the size of an item rather than of the response.
+ */
+public class ItemSplitter {
+
+  private static final String ANY = "*";
+
+  private final String[] path;
+  private final String itemKey;
+  private final StaxJsonConverter converter = new StaxJsonConverter(new XmlFactory(), new JsonFactory());
+  private final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(ItemSplitter::newBuilder);
+
+  /**
+   * Receives the items of a streamed response, one at a time and in document order.
+   */
+  public interface ItemHandler {
+
+    void item(Element item, int position) throws Exception;
+  }
+
+  public ItemSplitter(String elementPath, String itemKey) {
+    this.path = Arrays.stream(elementPath.split("/"))
+        .map(String::trim)
+        .filter(segment -> !segment.isEmpty())
+        .toArray(String[]::new);
+    if (path.length == 0) {
+      throw new ConfigException("Invalid split element path '" + elementPath + "'");
+    }
+    this.itemKey = itemKey == null || itemKey.isEmpty() ? null : itemKey;
+  }
+
+  public List<Element> items(SOAPBody body) throws SOAPException {
+    List<Element> items = new ArrayList<>();
+    collect(StaxJsonConverter.payloadElement(body), 0, items);
+    return items;
+  }
+
+  /**
+   * Reads a whole response envelope, handing every item to {@code handler} as soon as it has been read. A SOAP fault
+   * fails with a {@link SOAPException} before any item is handed over.
+   *
+   * @return the number of items read
+   */
+  public int forEachItem(InputStream envelope, ItemHandler handler) throws Exception {
+    XMLStreamReader payload;
+    try {
+      payload = converter.envelopePayloadReader(envelope);
+    } catch (XMLStreamException e) {
+      throw new SOAPException("Unreadable SOAP response", e);
+    }
+    try {
+      return forEachItem(payload, handler);
+    } finally {
+      payload.close();
+    }
+  }
+
+  /**
+   * Same walk as {@link #items(SOAPBody)} over a reader positioned on the payload element.
+   */
+  int forEachItem(XMLStreamReader payload, ItemHandler handler) throws Exception {
+    int position = 0;
+    // depth of the current element below the payload, and how many of its enclosing levels follow the path
+    int depth = 0;
+    int matched = 0;
+    while (payload.hasNext()) {
+      int event = payload.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        if (matched == depth - 1 && (ANY.equals(path[depth - 1]) || path[depth - 1].equals(payload.getLocalName()))) {
+          if (depth == path.length) {
+            // reading the item consumes it up to its end tag
+            handler.item(readElement(payload), position++);
+            depth--;
+          } else {
+            matched = depth;
+          }
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if (depth == 0) {
+          break;
+        }
+        if (matched == depth) {
+          matched--;
+        }
+        depth--;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * The value of the configured key attribute or child element of the item, or its position when it has none.
+   */
+  public String itemId(Element item, int position) {
+    if (itemKey != null) {
+      if (item.hasAttribute(itemKey)) {
+        return item.getAttribute(itemKey);
+      }
+      for (Node child = item.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE && itemKey.equals(localName(child))) {
+          String value = child.getTextContent().trim();
+          if (!value.isEmpty()) {
+            return value;
+          }
+        }
+      }
+    }
+    return String.valueOf(position);
+  }
+
+  private void collect(Element parent, int depth, List<Element> items) {
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() != Node.ELEMENT_NODE
+          || !(ANY.equals(path[depth]) || path[depth].equals(localName(child)))) {
+        continue;
+      }
+      if (depth == path.length - 1) {
+        items.add((Element) child);
+      } else {
+        collect((Element) child, depth + 1, items);
+      }
+    }
+  }
+
+  /**
+   * Copies the element the reader is positioned on into a document of its own, leaving the reader on its end tag.
+   */
+  private Element readElement(XMLStreamReader reader) throws XMLStreamException {
+    Document document = documentBuilders.get().newDocument();
+    Node current = document;
+    int depth = 0;
+    for (int event = reader.getEventType(); ; event = reader.next()) {
+      switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+          Element element = document.createElementNS(emptyToNull(reader.getNamespaceURI()),
+              qualifiedName(reader.getPrefix(), reader.getLocalName()));
+          for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = emptyToNull(reader.getNamespacePrefix(i));
+            String namespace = reader.getNamespaceURI(i);
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                prefix == null ? XMLConstants.XMLNS_ATTRIBUTE : qualifiedName(XMLConstants.XMLNS_ATTRIBUTE, prefix),
+                namespace == null ? "" : namespace);
+          }
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                reader.getAttributeValue(i));
+          }
+          current.appendChild(element);
+          current = element;
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          current = current.getParentNode();
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          current.appendChild(document.createTextNode(reader.getText()));
+          break;
+        default:
+          break;
+      }
+      if (depth == 0) {
+        return document.getDocumentElement();
+      }
+    }
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
+  }
+
+  private static DocumentBuilder newBuilder() {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    try {
+      return factory.newDocumentBuilder();
+    } catch (ParserConfigurationException e) {
+      throw new IllegalStateException("Unable to create XML document builder", e);
+    }
+  }
+
+  private static String localName(Node node) {
+    if (node.getLocalName() != null) {
+      return node.getLocalName();
+    }
+    String name = node.getNodeName();
+    return name.substring(name.indexOf(':') + 1);
+  }
+}
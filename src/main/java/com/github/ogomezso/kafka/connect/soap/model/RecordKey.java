@@ -14,12 +14,17 @@
 
 package com.github.ogomezso.kafka.connect.soap.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RecordKey {
   private String serviceName;
   private String requestType;
+  // only set for the records of a split response
+  private String itemId;
 }
@@ -14,23 +14,33 @@
 
 package com.github.ogomezso.kafka.connect.soap.model;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.deser.FromXmlParser;
 
 import jakarta.xml.soap.SOAPException;
 import jakarta.xml.soap.SOAPMessage;
@@ -39,53 +49,207 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SourceRecordMapper {
 
-  private final XmlMapper xmlMapper = new XmlMapper();
+  public static final String PARTITION_SERVICE_NAME = "serviceName";
+  public static final String PARTITION_REQUEST_TYPE = "requestType";
+
+  // a DOM cannot tell <a/> from <a></a>, so neither can the serialized payload: both are an empty string
+  private final XmlMapper xmlMapper = (XmlMapper) new XmlMapper()
+      .configure(FromXmlParser.Feature.EMPTY_ELEMENT_AS_NULL, false);
   private final ObjectMapper jsonMapper = new ObjectMapper();
+  private final StaxJsonConverter converter = new StaxJsonConverter(xmlMapper.getFactory(), jsonMapper.getFactory());
+  // the factory lookup and transformer setup happen once per mapping thread, never per record
+  private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+  private final ThreadLocal<Transformer> transformers = ThreadLocal.withInitial(this::newTransformer);
+  private final StructInferrer structInferrer = new StructInferrer();
 
   public SourceRecord getSourceRecordFromSoapMessage(RecordKey recordKey, SOAPMessage message,
       String topic)
       throws SOAPException, IOException, TransformerException {
+    return getSourceRecordFromSoapMessage(recordKey, message, topic, ValueFormat.JSON_STRING);
+  }
+
+  public SourceRecord getSourceRecordFromSoapMessage(RecordKey recordKey, SOAPMessage message,
+      String topic, ValueFormat valueFormat)
+      throws SOAPException, IOException, TransformerException {
+    return getSourceRecordFromSoapMessage(recordKey, message, topic, valueFormat, Collections.emptyMap());
+  }
+
+  public SourceRecord getSourceRecordFromSoapMessage(RecordKey recordKey, SOAPMessage message,
+      String topic, ValueFormat valueFormat, Map<String, ?> sourceOffset)
+      throws SOAPException, IOException, TransformerException {
 
     log.debug("Record key: {}", recordKey);
     String keyAsJsonString = jsonMapper.writeValueAsString(recordKey);
     log.debug("Record key string: {}", keyAsJsonString);
+    if (valueFormat == ValueFormat.STRUCT) {
+      Struct value = valueToStruct(recordKey.getRequestType(), message);
+      return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+          new RecordKeyStruct(keyAsJsonString), value.schema(), value, topic);
+    }
     String valueAsJsonString = valueToJsonString(message);
     log.debug("Value string: {}", valueAsJsonString);
-    return createSourceRecordFromSoapEvent(new RecordKeyStruct(keyAsJsonString),
-        new RecordValueStruct(valueAsJsonString), topic);
+    return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+        new RecordKeyStruct(keyAsJsonString), RecordValueStruct.SCHEMA, new RecordValueStruct(valueAsJsonString),
+        topic);
+  }
+
+  /**
+   * The record of a raw response envelope, read in one pass straight from the stream without building any DOM.
+   */
+  public SourceRecord getSourceRecordFromStream(RecordKey recordKey, InputStream response, String topic,
+      ValueFormat valueFormat, Map<String, ?> sourceOffset)
+      throws SOAPException, IOException {
+
+    String keyAsJsonString = jsonMapper.writeValueAsString(recordKey);
+    try {
+      XMLStreamReader reader = converter.envelopePayloadReader(response);
+      if (valueFormat == ValueFormat.STRUCT) {
+        try (JsonParser parser = xmlMapper.getFactory().createParser(reader)) {
+          Struct value = structInferrer.toStruct(recordKey.getRequestType(), parser);
+          return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+              new RecordKeyStruct(keyAsJsonString), value.schema(), value, topic);
+        }
+      }
+      return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+          new RecordKeyStruct(keyAsJsonString), RecordValueStruct.SCHEMA,
+          new RecordValueStruct(streamToJsonString(reader)), topic);
+    } catch (XMLStreamException e) {
+      throw new SOAPException("Unreadable SOAP response", e);
+    }
+  }
+
+  String streamToJsonString(XMLStreamReader reader) throws IOException {
+    return converter.toJson(reader);
   }
 
-  private String valueToJsonString(SOAPMessage message)
+  /**
+   * The record of one item of a split response, mapped on its own without copying it out of the response.
+   */
+  public SourceRecord getSourceRecordFromItem(RecordKey recordKey, Element item, String topic,
+      ValueFormat valueFormat, Map<String, ?> sourceOffset)
+      throws IOException, TransformerException {
+
+    String keyAsJsonString = jsonMapper.writeValueAsString(recordKey);
+    if (valueFormat == ValueFormat.STRUCT) {
+      Struct value = elementToStruct(recordKey.getRequestType(), item);
+      return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+          new RecordKeyStruct(keyAsJsonString), value.schema(), value, topic);
+    }
+    return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+        new RecordKeyStruct(keyAsJsonString), RecordValueStruct.SCHEMA,
+        new RecordValueStruct(elementToJsonString(item)), topic);
+  }
+
+  /**
+   * Deletion marker for an item gone from the response: the item key with a null value and schema.
+   */
+  public SourceRecord getTombstone(RecordKey recordKey, String topic, Map<String, ?> sourceOffset)
+      throws IOException {
+    String keyAsJsonString = jsonMapper.writeValueAsString(recordKey);
+    return createSourceRecordFromSoapEvent(sourcePartition(recordKey), sourceOffset,
+        new RecordKeyStruct(keyAsJsonString), null, null, topic);
+  }
+
+  /**
+   * Every request of a service is a partition of its own, so its offset survives restarts and reassignments.
+   */
+  public static Map<String, String> sourcePartition(RecordKey recordKey) {
+    Map<String, String> partition = new HashMap<>();
+    partition.put(PARTITION_SERVICE_NAME, recordKey.getServiceName());
+    partition.put(PARTITION_REQUEST_TYPE, recordKey.getRequestType());
+    return partition;
+  }
+
+  Struct valueToStruct(String requestType, SOAPMessage message)
       throws TransformerException, SOAPException, IOException {
-    log.info("mapping");
+    try (JsonParser parser = xmlMapper.getFactory().createParser(converter.payloadReader(message.getSOAPBody()))) {
+      return structInferrer.toStruct(requestType, parser);
+    } catch (XMLStreamException | UnsupportedOperationException e) {
+      log.warn("Streaming conversion not available, mapping through the serialized payload", e);
+    }
     Document doc = message.getSOAPBody().extractContentAsDocument();
+    try (JsonParser parser = xmlMapper.getFactory().createParser(serialize(doc))) {
+      return structInferrer.toStruct(requestType, parser);
+    }
+  }
+
+  Struct elementToStruct(String requestType, Element element) throws TransformerException, IOException {
+    try (JsonParser parser = xmlMapper.getFactory().createParser(converter.elementReader(element))) {
+      return structInferrer.toStruct(requestType, parser);
+    } catch (XMLStreamException | UnsupportedOperationException e) {
+      log.warn("Streaming conversion not available, mapping through the serialized payload", e);
+    }
+    try (JsonParser parser = xmlMapper.getFactory().createParser(serialize(element))) {
+      return structInferrer.toStruct(requestType, parser);
+    }
+  }
+
+  String valueToJsonString(SOAPMessage message)
+      throws TransformerException, SOAPException, IOException {
+    log.debug("mapping");
+    try {
+      return converter.toJson(converter.payloadReader(message.getSOAPBody()));
+    } catch (XMLStreamException | UnsupportedOperationException e) {
+      log.warn("Streaming conversion not available, mapping through the serialized payload", e);
+    }
+    return serializedValueToJsonString(message);
+  }
+
+  String serializedValueToJsonString(SOAPMessage message)
+      throws TransformerException, SOAPException, IOException {
+    Document doc = message.getSOAPBody().extractContentAsDocument();
+    try (JsonParser parser = xmlMapper.getFactory().createParser(serialize(doc))) {
+      return converter.parserToJson(parser);
+    }
+  }
+
+  String elementToJsonString(Element element) throws TransformerException, IOException {
+    try {
+      return converter.toJson(converter.elementReader(element));
+    } catch (XMLStreamException | UnsupportedOperationException e) {
+      log.warn("Streaming conversion not available, mapping through the serialized payload", e);
+    }
+    try (JsonParser parser = xmlMapper.getFactory().createParser(serialize(element))) {
+      return converter.parserToJson(parser);
+    }
+  }
+
+  private String serialize(Node node) throws TransformerException {
     StringWriter sw = new StringWriter();
-    TransformerFactory tf = TransformerFactory.newInstance();
-    Transformer transformer = tf.newTransformer();
+    transformers.get().transform(new DOMSource(node), new StreamResult(sw));
+    return sw.toString();
+  }
+
+  private Transformer newTransformer() {
+    Transformer transformer;
+    try {
+      // a TransformerFactory is not thread safe
+      synchronized (transformerFactory) {
+        transformer = transformerFactory.newTransformer();
+      }
+    } catch (TransformerConfigurationException e) {
+      throw new IllegalStateException("Unable to create XML transformer", e);
+    }
     transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
     transformer.setOutputProperty(OutputKeys.METHOD, "xml");
     transformer.setOutputProperty(OutputKeys.INDENT, "yes");
     transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-    transformer.transform(new DOMSource(doc), new StreamResult(sw));
-    JsonNode node = xmlMapper.readTree(sw.toString().getBytes());
-    return jsonMapper.writeValueAsString(node);
+    return transformer;
   }
 
   private SourceRecord createSourceRecordFromSoapEvent(
+      Map<String, ?> srcPartition, Map<String, ?> srcOffset,
       RecordKeyStruct key,
-      RecordValueStruct value, String topic) {
-// TODO Add Support to full qualified AVRO Schemas
-    Map<String, ?> srcOffset = Collections.emptyMap();
-    Map<String, ?> srcPartition = Collections.emptyMap();
+      Schema valueSchema, Object value, String topic) {
 
-    log.debug("Event " + value.toString());
+    log.debug("Event {}", value);
     return new SourceRecord(
         srcPartition,
         srcOffset,
         topic,
         RecordKeyStruct.SCHEMA,
         key,
-        RecordValueStruct.SCHEMA,
+        valueSchema,
         value
     );
 
@@ -0,0 +1,315 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.dom.DOMSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+
+import jakarta.xml.soap.SOAPBody;
+import jakarta.xml.soap.SOAPException;
+
+/**
+ * XML to JSON conversion without a DOM, an intermediate XML string or a JsonNode tree: the SOAP payload is read with
+ * StAX through Jackson's XML parser into a token buffer, and the tokens are written to a JSON generator.
+ * <p>
+ * An element name repeated inside one parent becomes an array at the position of its first occurrence. A first scan
+ * of the buffer finds the objects repeating a name, and only the fields of those are buffered again to be grouped.
+ */
+public class StaxJsonConverter {
+
+  private static final String SOAP_11_ENVELOPE = "http://schemas.xmlsoap.org/soap/envelope/";
+  private static final String SOAP_12_ENVELOPE = "http://www.w3.org/2003/05/soap-envelope";
+
+  private final XmlFactory xmlFactory;
+  private final JsonFactory jsonFactory;
+
+  public StaxJsonConverter(XmlFactory xmlFactory, JsonFactory jsonFactory) {
+    this.xmlFactory = xmlFactory;
+    this.jsonFactory = jsonFactory;
+  }
+
+  /**
+   * The single element in the SOAP body, the same one {@code SOAPBody.extractContentAsDocument} would return.
+   */
+  public static Element payloadElement(SOAPBody body) throws SOAPException {
+    Element payload = null;
+    for (Node child = body.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        if (payload != null) {
+          throw new SOAPException("Cannot extract Document from body: more than one child element");
+        }
+        payload = (Element) child;
+      }
+    }
+    if (payload == null) {
+      throw new SOAPException("Cannot extract Document from body: no child element");
+    }
+    return payload;
+  }
+
+  public XMLStreamReader payloadReader(SOAPBody body) throws SOAPException, XMLStreamException {
+    return elementReader(payloadElement(body));
+  }
+
+  public XMLStreamReader elementReader(Element element) throws XMLStreamException {
+    XMLInputFactory inputFactory = xmlFactory.getXMLInputFactory();
+    return inputFactory.createXMLStreamReader(new DOMSource(element));
+  }
+
+  /**
+   * Reads a whole response envelope up to its payload, returning a reader that ends with the payload element.
+   */
+  public XMLStreamReader envelopePayloadReader(InputStream envelope) throws SOAPException, XMLStreamException {
+    XMLStreamReader reader = xmlFactory.getXMLInputFactory().createXMLStreamReader(envelope);
+    while (reader.hasNext()) {
+      if (reader.next() == XMLStreamConstants.START_ELEMENT && "Body".equals(reader.getLocalName())
+          && isEnvelopeNamespace(reader.getNamespaceURI())) {
+        if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+          throw new SOAPException("Cannot extract Document from body: no child element");
+        }
+        if ("Fault".equals(reader.getLocalName()) && isEnvelopeNamespace(reader.getNamespaceURI())) {
+          throw new SOAPException("SOAP fault: " + faultString(reader));
+        }
+        return new SubtreeReader(reader);
+      }
+    }
+    throw new SOAPException("No SOAP Body in the response");
+  }
+
+  public String toJson(XMLStreamReader reader) throws IOException {
+    try (JsonParser parser = xmlFactory.createParser(reader)) {
+      return parserToJson(parser);
+    }
+  }
+
+  public String parserToJson(JsonParser parser) throws IOException {
+    StringWriter out = new StringWriter();
+    try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+      copy(parser, generator);
+    }
+    return out.toString();
+  }
+
+  public void copy(JsonParser parser, JsonGenerator generator) throws IOException {
+    if (parser.nextToken() == null) {
+      return;
+    }
+    TokenBuffer tokens = new TokenBuffer(parser);
+    tokens.copyCurrentStructure(parser);
+    BitSet repeating = objectsRepeatingNames(tokens.asParser());
+    try (JsonParser buffered = tokens.asParser()) {
+      buffered.nextToken();
+      new Grouping(repeating).copyValue(buffered, generator);
+    }
+  }
+
+  /**
+   * The objects, numbered in the order they start, with a field name given more than once.
+   */
+  private static BitSet objectsRepeatingNames(JsonParser tokens) throws IOException {
+    BitSet repeating = new BitSet();
+    Deque<Set<String>> fieldNames = new ArrayDeque<>();
+    Deque<Integer> objects = new ArrayDeque<>();
+    int started = 0;
+    JsonToken token;
+    while ((token = tokens.nextToken()) != null) {
+      if (token == JsonToken.START_OBJECT) {
+        objects.push(started++);
+        fieldNames.push(new HashSet<>());
+      } else if (token == JsonToken.END_OBJECT) {
+        objects.pop();
+        fieldNames.pop();
+      } else if (token == JsonToken.FIELD_NAME && !fieldNames.peek().add(tokens.getCurrentName())) {
+        repeating.set(objects.peek());
+      }
+    }
+    return repeating;
+  }
+
+  private static boolean isEnvelopeNamespace(String namespace) {
+    return SOAP_11_ENVELOPE.equals(namespace) || SOAP_12_ENVELOPE.equals(namespace);
+  }
+
+  private static String faultString(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0 && reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        // faultstring in SOAP 1.1, Text inside Reason in SOAP 1.2
+        if ("faultstring".equals(reader.getLocalName()) || "Text".equals(reader.getLocalName())) {
+          return reader.getElementText();
+        }
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+    return "no fault details";
+  }
+
+  /**
+   * A reader positioned on an element that ends the document right after it, so a parser consuming it stops at the
+   * end of the payload instead of running into the rest of the envelope.
+   */
+  static final class SubtreeReader extends StreamReaderDelegate {
+
+    private int depth = 1;
+    private boolean ended;
+
+    SubtreeReader(XMLStreamReader reader) {
+      super(reader);
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+      if (depth == 0) {
+        ended = true;
+        return XMLStreamConstants.END_DOCUMENT;
+      }
+      int event = super.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+      return event;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+      int event = next();
+      while ((event == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+          || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.COMMENT
+          || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+        event = next();
+      }
+      if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+        throw new XMLStreamException("Expected a start or end tag", getLocation());
+      }
+      return event;
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+      // the parent reads up to the matching end tag without going through next()
+      String text = super.getElementText();
+      depth--;
+      return text;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+      return !ended;
+    }
+
+    @Override
+    public int getEventType() {
+      return ended ? XMLStreamConstants.END_DOCUMENT : super.getEventType();
+    }
+  }
+
+  /**
+   * Copies a value, grouping the repeated fields of the objects found by the scan. Objects are numbered in the order
+   * they start, the same order as the scan, whether they are copied straight or into the buffer of a field.
+   */
+  private static final class Grouping {
+
+    private final BitSet repeating;
+    private int started;
+
+    Grouping(BitSet repeating) {
+      this.repeating = repeating;
+    }
+
+    void copyValue(JsonParser parser, JsonGenerator generator) throws IOException {
+      switch (parser.currentToken()) {
+        case START_OBJECT:
+          if (repeating.get(started++)) {
+            copyGroupedObject(parser, generator);
+          } else {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+              generator.writeFieldName(parser.getCurrentName());
+              parser.nextToken();
+              copyValue(parser, generator);
+            }
+            generator.writeEndObject();
+          }
+          break;
+        case START_ARRAY:
+          generator.writeStartArray();
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            copyValue(parser, generator);
+          }
+          generator.writeEndArray();
+          break;
+        default:
+          generator.copyCurrentEvent(parser);
+      }
+    }
+
+    private void copyGroupedObject(JsonParser parser, JsonGenerator generator) throws IOException {
+      Map<String, List<TokenBuffer>> fields = new LinkedHashMap<>();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        TokenBuffer value = new TokenBuffer(parser);
+        copyValue(parser, value);
+        fields.computeIfAbsent(name, n -> new ArrayList<>(1)).add(value);
+      }
+      generator.writeStartObject();
+      for (Map.Entry<String, List<TokenBuffer>> field : fields.entrySet()) {
+        generator.writeFieldName(field.getKey());
+        List<TokenBuffer> values = field.getValue();
+        if (values.size() == 1) {
+          values.get(0).serialize(generator);
+        } else {
+          generator.writeStartArray();
+          for (TokenBuffer value : values) {
+            value.serialize(generator);
+          }
+          generator.writeEndArray();
+        }
+      }
+      generator.writeEndObject();
+    }
+  }
+}
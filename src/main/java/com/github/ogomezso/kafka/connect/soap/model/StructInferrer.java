@@ -0,0 +1,260 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Turns a SOAP payload into a nested Connect {@link Struct} whose {@link Schema} is inferred from the response itself.
+ * <p>
+ * Elements with children become arrays of optional structs named after their path, repeated leaves arrays of
+ * strings and other leaves optional strings, as XML carries no types. The schema of every request type is cached: a
+ * record that fits it is converted straight away, and a response with new fields adds them as optional ones. A field
+ * keeps the type it was first inferred with, a leaf later seen with children or repeated holds its JSON text.
+ */
+@Slf4j
+public class StructInferrer {
+
+  static final String TEXT_FIELD = "_text";
+  private static final String SCHEMA_NAMESPACE = "com.github.ogomezso.kafka.connect.soap.";
+  private static final Schema OPTIONAL_STRING = Schema.OPTIONAL_STRING_SCHEMA;
+
+  private final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+  private final ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<>();
+
+  public Struct toStruct(String requestType, JsonParser xmlParser) throws IOException {
+    ObjectNode root = asObject(readTree(xmlParser));
+    Schema cached = schemas.get(requestType);
+    if (cached != null) {
+      try {
+        return (Struct) convert(root, cached);
+      } catch (SchemaMismatchException e) {
+        log.debug("Response of {} does not fit its cached schema: {}", requestType, e.getMessage());
+      }
+    }
+    Schema schema = schemas.compute(requestType, (k, current) -> mergeStruct(current, root, schemaName(k), true));
+    log.info("Schema for {} (re)built with {} fields", requestType, schema.fields().size());
+    return (Struct) convert(root, schema);
+  }
+
+  Schema cachedSchema(String requestType) {
+    return schemas.get(requestType);
+  }
+
+  static String fieldName(String name) {
+    if (name.isEmpty()) {
+      return TEXT_FIELD;
+    }
+    String sanitized = name.replaceAll("[^A-Za-z0-9_]", "_");
+    return Character.isDigit(sanitized.charAt(0)) ? "_" + sanitized : sanitized;
+  }
+
+  private static String schemaName(String requestType) {
+    String name = requestType.substring(Math.max(requestType.lastIndexOf('/'), requestType.lastIndexOf('\\')) + 1);
+    return SCHEMA_NAMESPACE + fieldName(name.isEmpty() ? "Value" : name);
+  }
+
+  /**
+   * Reads the parser into a tree keeping every repeated element in an array, where a plain readTree keeps the last.
+   */
+  private JsonNode readTree(JsonParser parser) throws IOException {
+    JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+    if (token == null) {
+      return nodeFactory.objectNode();
+    }
+    return readValue(parser, token);
+  }
+
+  private JsonNode readValue(JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+      case START_OBJECT:
+        ObjectNode object = nodeFactory.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          JsonNode value = readValue(parser, parser.nextToken());
+          JsonNode existing = object.get(name);
+          if (existing == null) {
+            object.set(name, value);
+          } else if (existing.isArray()) {
+            ((ArrayNode) existing).add(value);
+          } else {
+            object.set(name, nodeFactory.arrayNode().add(existing).add(value));
+          }
+        }
+        return object;
+      case START_ARRAY:
+        ArrayNode array = nodeFactory.arrayNode();
+        JsonToken next;
+        while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+          array.add(readValue(parser, next));
+        }
+        return array;
+      case VALUE_NULL:
+        return nodeFactory.nullNode();
+      default:
+        return nodeFactory.textNode(parser.getText());
+    }
+  }
+
+  private ObjectNode asObject(JsonNode node) {
+    if (node.isObject()) {
+      return (ObjectNode) node;
+    }
+    ObjectNode wrapper = nodeFactory.objectNode();
+    wrapper.set("", node);
+    return wrapper;
+  }
+
+  /**
+   * Grows {@code cached} to hold {@code node}. The type of a field never changes once inferred, only optional fields
+   * are added to structs: a value that no longer fits a string field is kept as its JSON text.
+   */
+  private Schema merge(Schema cached, JsonNode node, String name) {
+    if (node == null || node.isNull()) {
+      return cached != null ? cached : OPTIONAL_STRING;
+    }
+    if (cached != null && cached.type() == Schema.Type.STRING) {
+      return cached;
+    }
+    if (cached != null || node.isContainerNode()) {
+      // an element with children may repeat in the next response, so it is an array from the start
+      Schema element = cached == null ? null : cached.valueSchema();
+      for (JsonNode item : items(node)) {
+        element = mergeElement(element, item, name);
+      }
+      return SchemaBuilder.array(element != null ? element : OPTIONAL_STRING).optional().build();
+    }
+    return OPTIONAL_STRING;
+  }
+
+  private Schema mergeElement(Schema cached, JsonNode node, String name) {
+    if (node.isNull() || (cached != null && cached.type() == Schema.Type.STRING)) {
+      return cached != null ? cached : OPTIONAL_STRING;
+    }
+    if (node.isObject() || cached != null) {
+      return mergeStruct(cached, node, name, false);
+    }
+    return OPTIONAL_STRING;
+  }
+
+  private Schema mergeStruct(Schema cached, JsonNode node, String name, boolean root) {
+    Map<String, Schema> fields = new LinkedHashMap<>();
+    if (cached != null) {
+      for (Field f : cached.fields()) {
+        fields.put(f.name(), f.schema());
+      }
+    }
+    if (node.isObject()) {
+      Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+      while (it.hasNext()) {
+        Map.Entry<String, JsonNode> child = it.next();
+        String fieldName = fieldName(child.getKey());
+        fields.put(fieldName, merge(fields.get(fieldName), child.getValue(), name + "." + fieldName));
+      }
+    } else {
+      fields.put(TEXT_FIELD, merge(fields.get(TEXT_FIELD), node, name + "." + TEXT_FIELD));
+    }
+    // named after its path, so converters do not number the nested structs in the order they meet them
+    SchemaBuilder builder = SchemaBuilder.struct().name(name);
+    if (!root) {
+      builder.optional();
+    }
+    fields.forEach(builder::field);
+    return builder.build();
+  }
+
+  private static List<JsonNode> items(JsonNode node) {
+    if (!node.isArray()) {
+      return Collections.singletonList(node);
+    }
+    List<JsonNode> items = new ArrayList<>();
+    for (JsonNode item : node) {
+      items.addAll(items(item));
+    }
+    return items;
+  }
+
+  private Object convert(JsonNode node, Schema schema) {
+    if (node == null || node.isNull()) {
+      return null;
+    }
+    switch (schema.type()) {
+      case STRUCT:
+        Struct struct = new Struct(schema);
+        if (node.isObject()) {
+          Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+          while (it.hasNext()) {
+            Map.Entry<String, JsonNode> child = it.next();
+            Field field = field(schema, fieldName(child.getKey()));
+            struct.put(field, convert(child.getValue(), field.schema()));
+          }
+        } else {
+          Field text = field(schema, TEXT_FIELD);
+          struct.put(text, convert(node, text.schema()));
+        }
+        return struct;
+      case ARRAY:
+        List<Object> values = new ArrayList<>();
+        for (JsonNode item : items(node)) {
+          values.add(convert(item, schema.valueSchema()));
+        }
+        return values;
+      default:
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+  }
+
+  private static Field field(Schema schema, String name) {
+    Field field = schema.field(name);
+    if (field == null) {
+      throw new SchemaMismatchException("unknown field " + name);
+    }
+    return field;
+  }
+
+  private static class SchemaMismatchException extends RuntimeException {
+
+    SchemaMismatchException(String message) {
+      super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+/**
+ * How the response of a request is turned into the value of its records.
+ */
+public enum ValueFormat {
+  /**
+   * The whole response as a JSON string in the {@code data} field of {@link RecordValueStruct}.
+   */
+  JSON_STRING,
+  /**
+   * A nested Struct with the shape of the response, see {@link StructInferrer}.
+   */
+  STRUCT
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.math.BigDecimal;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.w3c.dom.NodeList;
+
+import jakarta.xml.soap.SOAPBody;
+import jakarta.xml.soap.SOAPException;
+
+/**
+ * Reads values out of a response with an XPath evaluated against its payload element: the first one selected, such as
+ * a next page token, or the highest one, such as a watermark. Values compare as numbers when both sides are numeric
+ * and lexically otherwise, which also orders ISO-8601 timestamps.
+ */
+public class XPathExtractor {
+
+  private final String path;
+  private final XPathExpression expression;
+
+  public XPathExtractor(String path) {
+    this.path = path;
+    try {
+      this.expression = XPathFactory.newInstance().newXPath().compile(path);
+    } catch (XPathExpressionException e) {
+      throw new ConfigException("Invalid XPath '" + path + "': " + e.getMessage());
+    }
+  }
+
+  /**
+   * The first non-empty value in the response, or null when the XPath selects nothing.
+   */
+  public String first(SOAPBody body) throws SOAPException {
+    NodeList nodes = evaluate(body);
+    for (int i = 0; i < nodes.getLength(); i++) {
+      String value = nodes.item(i).getTextContent().trim();
+      if (!value.isEmpty()) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The highest value in the response, or null when the XPath selects nothing.
+   */
+  public String max(SOAPBody body) throws SOAPException {
+    NodeList nodes = evaluate(body);
+    String max = null;
+    for (int i = 0; i < nodes.getLength(); i++) {
+      String value = nodes.item(i).getTextContent().trim();
+      if (!value.isEmpty() && compare(value, max) > 0) {
+        max = value;
+      }
+    }
+    return max;
+  }
+
+  private synchronized NodeList evaluate(SOAPBody body) throws SOAPException {
+    try {
+      // an XPathExpression is not thread safe
+      return (NodeList) expression.evaluate(StaxJsonConverter.payloadElement(body), XPathConstants.NODESET);
+    } catch (XPathExpressionException e) {
+      throw new SOAPException("XPath '" + path + "' cannot be evaluated", e);
+    }
+  }
+
+  /**
+   * Compares two values, null being lower than any other.
+   */
+  public static int compare(String a, String b) {
+    if (a == null || b == null) {
+      return a == null ? (b == null ? 0 : -1) : 1;
+    }
+    BigDecimal numberA = toNumber(a);
+    BigDecimal numberB = toNumber(b);
+    if (numberA != null && numberB != null) {
+      return numberA.compareTo(numberB);
+    }
+    return a.compareTo(b);
+  }
+
+  private static BigDecimal toNumber(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if ("0123456789+-.eE".indexOf(value.charAt(i)) < 0) {
+        return null;
+      }
+    }
+    try {
+      return new BigDecimal(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
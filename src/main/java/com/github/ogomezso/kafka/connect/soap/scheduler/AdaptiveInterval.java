@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.scheduler;
+
+/**
+ * The delay before the next call of a request: backs off exponentially while calls fail and, when adapting to changes,
+ * shrinks while responses differ and grows while they repeat.
+ */
+public class AdaptiveInterval {
+
+  public enum Outcome {
+    CHANGED, UNCHANGED, FAILED
+  }
+
+  private final long interval;
+  private final long minInterval;
+  private final long maxInterval;
+  private final double multiplier;
+  private final boolean adaptToChanges;
+  private long current;
+  private boolean failing;
+
+  public AdaptiveInterval(long interval, long minInterval, long maxInterval, double multiplier,
+                          boolean adaptToChanges) {
+    this.interval = interval;
+    this.adaptToChanges = adaptToChanges;
+    this.minInterval = adaptToChanges ? Math.min(minInterval, interval) : interval;
+    this.maxInterval = Math.max(maxInterval, interval);
+    this.multiplier = Math.max(multiplier, 1.0);
+    this.current = interval;
+  }
+
+  /**
+   * Records the outcome of a cycle and returns the delay before the next one; {@code null} when the cycle was
+   * skipped, which keeps the current delay.
+   */
+  public synchronized long next(Outcome outcome) {
+    if (outcome == null) {
+      return current;
+    }
+    if (outcome == Outcome.FAILED) {
+      failing = true;
+      current = scale(Math.max(current, interval), multiplier);
+      return current;
+    }
+    // the back off of a failure does not outlive it
+    long previous = failing ? Math.min(current, interval) : current;
+    failing = false;
+    if (!adaptToChanges) {
+      current = interval;
+    } else if (outcome == Outcome.UNCHANGED) {
+      current = scale(previous, multiplier);
+    } else {
+      current = scale(previous, 1 / multiplier);
+    }
+    return current;
+  }
+
+  public synchronized long current() {
+    return current;
+  }
+
+  private long scale(long value, double factor) {
+    // an interval of 0 would never grow
+    long scaled = (long) Math.ceil(Math.max(value, 1L) * factor);
+    return Math.max(minInterval, Math.min(maxInterval, scaled));
+  }
+}
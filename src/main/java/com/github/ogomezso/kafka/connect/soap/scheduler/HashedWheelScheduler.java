@@ -0,0 +1,158 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel serving every request of a task with a single thread.
+ * <p>
+ * Timeouts are hashed into {@code ticksPerWheel} buckets by their deadline tick; a timeout further away than one
+ * wheel turn just counts down its remaining rounds. Scheduling and cancelling are O(1) whatever the number of
+ * requests, at the price of a precision of one tick. Expired tasks run on the wheel thread, so they must only hand
+ * the real work over to an executor.
+ */
+@Slf4j
+public class HashedWheelScheduler {
+
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  private final long tickNanos;
+  private final int mask;
+  private final List<LinkedList<WheelTimeout>> wheel;
+  private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+  private final Thread worker;
+  private final long startTime;
+  private volatile boolean running = true;
+  private long tick;
+
+  public HashedWheelScheduler(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("tickDuration must be greater than 0");
+    }
+    int size = Integer.highestOneBit(Math.max(ticksPerWheel, 1) * 2 - 1); // next power of two
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.mask = size - 1;
+    this.wheel = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      wheel.add(new LinkedList<>());
+    }
+    this.startTime = System.nanoTime();
+    this.worker = new Thread(this::work, "soap-poll-scheduler-" + INSTANCES.incrementAndGet());
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  public WheelTimeout schedule(Runnable task, long delay, TimeUnit unit) {
+    WheelTimeout timeout = new WheelTimeout(task, System.nanoTime() - startTime + unit.toNanos(delay));
+    pendingTimeouts.add(timeout);
+    return timeout;
+  }
+
+  public void stop() {
+    running = false;
+    worker.interrupt();
+    try {
+      worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) + 1000L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void work() {
+    while (running) {
+      if (!waitForNextTick()) {
+        break;
+      }
+      transferPendingTimeouts();
+      expire(wheel.get((int) (tick & mask)));
+      tick++;
+    }
+  }
+
+  private boolean waitForNextTick() {
+    long deadline = tickNanos * (tick + 1);
+    long sleepNanos = deadline - (System.nanoTime() - startTime);
+    if (sleepNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+      } catch (InterruptedException e) {
+        return false;
+      }
+    }
+    return running;
+  }
+
+  private void transferPendingTimeouts() {
+    WheelTimeout timeout;
+    while ((timeout = pendingTimeouts.poll()) != null) {
+      if (timeout.isCancelled()) {
+        continue;
+      }
+      long calculated = timeout.deadline / tickNanos;
+      timeout.remainingRounds = (calculated - tick) / wheel.size();
+      wheel.get((int) (Math.max(calculated, tick) & mask)).add(timeout);
+    }
+  }
+
+  private void expire(LinkedList<WheelTimeout> bucket) {
+    Iterator<WheelTimeout> it = bucket.iterator();
+    while (it.hasNext()) {
+      WheelTimeout timeout = it.next();
+      if (timeout.isCancelled()) {
+        it.remove();
+      } else if (timeout.remainingRounds <= 0) {
+        it.remove();
+        try {
+          timeout.task.run();
+        } catch (Throwable t) {
+          log.error("Scheduled task failed", t);
+        }
+      } else {
+        timeout.remainingRounds--;
+      }
+    }
+  }
+
+  public static class WheelTimeout {
+
+    private final Runnable task;
+    private final long deadline;
+    private long remainingRounds;
+    private volatile boolean cancelled;
+
+    WheelTimeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    public void cancel() {
+      cancelled = true;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
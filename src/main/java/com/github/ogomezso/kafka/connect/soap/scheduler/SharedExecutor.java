@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.scheduler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size pool every client of a task submits its calls to, instead of each client owning threads of its own.
+ * Exposes its queue depth and active thread count so it can be sized from real load. Asynchronous calls block an
+ * {@link #io() I/O thread} of their own while in flight, from a separate pool of bounded size.
+ */
+public class SharedExecutor {
+
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  private final ScheduledThreadPoolExecutor executor;
+  private final ThreadPoolExecutor io;
+
+  public SharedExecutor(int threads) {
+    this(threads, threads);
+  }
+
+  public SharedExecutor(int threads, int ioThreads) {
+    int instance = INSTANCES.incrementAndGet();
+    this.executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1),
+        threadFactory("soap-executor-" + instance + "-"));
+    this.executor.setRemoveOnCancelPolicy(true);
+    int ioPoolSize = Math.max(ioThreads, 1);
+    this.io = new ThreadPoolExecutor(ioPoolSize, ioPoolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        threadFactory("soap-io-" + instance + "-"));
+    this.io.allowCoreThreadTimeOut(true);
+  }
+
+  private static ThreadFactory threadFactory(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, prefix + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+
+  /**
+   * Half of the available processors, the size each client used to get for itself.
+   */
+  public static int defaultThreads() {
+    return Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+  }
+
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  /**
+   * Runs the blocking part of asynchronous calls, one thread per call until its response is read. Calls beyond its
+   * size wait in its queue, and never take a thread from the pool responses are mapped on.
+   */
+  public Executor io() {
+    return io;
+  }
+
+  public int ioPoolSize() {
+    return io.getMaximumPoolSize();
+  }
+
+  public int queueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public int activeThreads() {
+    return executor.getActiveCount();
+  }
+
+  public int poolSize() {
+    return executor.getCorePoolSize();
+  }
+
+  public long completedTasks() {
+    return executor.getCompletedTaskCount();
+  }
+
+  public void shutdownNow() {
+    executor.shutdownNow();
+    io.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return "SharedExecutor{threads=" + poolSize() + ", active=" + activeThreads() + ", queued=" + queueDepth()
+        + ", completed=" + completedTasks() + "}";
+  }
+}
@@ -28,17 +28,83 @@ import java.util.Map;
 
 public class AbstractSoapSourceConfig extends AbstractSoapConfig {
 
+  public static final String BATCH_LINGER = "batchLinger";
+  public static final String COMPLETION_QUEUE_CAPACITY = "completionQueueCapacity";
+  public static final String EXECUTOR_THREADS = "executorThreads";
+  public static final String IO_THREADS = "ioThreads";
+  public static final String MAX_BATCH_BYTES = "maxBatchBytes";
+  public static final String MAX_BATCH_RECORDS = "maxBatchRecords";
+  public static final String REBALANCE_CHECK_INTERVAL = "rebalanceCheckInterval";
+  public static final String REBALANCE_THRESHOLD = "rebalanceThreshold";
+  public static final String REQUEST_DIRECTORY_EXCLUDED = "requestDirectoryExcluded";
+  public static final String REQUEST_DIRECTORY_SHARD = "requestDirectoryShard";
+  public static final String REQUEST_DIRECTORY_SHARDS = "requestDirectoryShards";
+  public static final String REQUEST_MSG_DIRECTORY = "requestMessageDirectory";
   public static final String REQUEST_MSG_FILES = "requestMessageFiles";
+  public static final String REQUEST_MSG_GLOB = "requestMessageGlob";
+  public static final String REQUEST_OVERRIDE_PREFIX = "request.";
   public static final String REQUEST_TOPIC_ASSIGNMENT = "requestTopicAssignment";
+  public static final String SCHEDULER_TICK_DURATION = "schedulerTickDuration";
+  public static final String TASK_INDEX = "taskIndex";
 
+  private static final String BATCH_LINGER_DOC = "Time in milliseconds poll() keeps waiting for more records once it " +
+                                                     "has one, unless the batch fills up first. 0 returns what is " +
+                                                     "ready";
+  private static final String COMPLETION_QUEUE_CAPACITY_DOC = "Maximum number of mapped records waiting to be " +
+                                                                  "returned by poll(). Clients block when it is full.";
+  private static final String EXECUTOR_THREADS_DOC = "Number of threads shared by all the requests of a task. 0 " +
+                                                         "means half of the available processors.";
+  private static final String IO_THREADS_DOC = "Number of threads of a task making the asynchronous calls of its " +
+                                                   "requests. The transports block one of them for each call in " +
+                                                   "flight, so calls beyond it wait for a free one";
+  private static final String MAX_BATCH_BYTES_DOC = "Estimated size in bytes of the keys and values a poll() returns " +
+                                                        "at most. 0 does not bound it";
+  private static final String MAX_BATCH_RECORDS_DOC = "Number of records a poll() returns at most";
+  private static final String REBALANCE_CHECK_INTERVAL_DOC = "Time in milliseconds between two checks of the " +
+                                                                 "measured load of the tasks. 0 never checks";
+  private static final String REBALANCE_THRESHOLD_DOC = "How much the busiest task may exceed the best balance " +
+                                                            "reachable, as a fraction (0.25 is 25%), before the " +
+                                                            "requests are reassigned";
+  private static final String REQUEST_DIRECTORY_EXCLUDED_DOC = "Set by the connector: every file of " +
+                                                                   "requestMessageFiles, left by the request " +
+                                                                   "directory to the task it is assigned to";
+  private static final String REQUEST_DIRECTORY_SHARD_DOC = "Set by the connector: the share of the request " +
+                                                                "directory files a task calls";
+  private static final String REQUEST_DIRECTORY_SHARDS_DOC = "Set by the connector: the number of tasks sharing " +
+                                                                 "the request directory files";
+  private static final String REQUEST_MSG_DIRECTORY_DOC = "Absolute path of a directory whose files matching " +
+                                                              "requestMessageGlob are request messages too. Files " +
+                                                              "added, changed or removed are picked up while running";
   private static final String REQUEST_MSG_FILES_DOC = "List of java.io.File objects containing the xml service " +
-                                                          "message.";
+                                                          "message. Any client setting can be overridden for a " +
+                                                          "single request as request.<file name>.<setting>";
+  private static final String REQUEST_MSG_GLOB_DOC = "Glob the file names in requestMessageDirectory must match";
   private static final String REQUEST_TOPIC_ASSIGNMENT_DOC = "The strategy determining in which topic each client " +
                                                                  "response is written into. <ONE_TOPIC | " +
                                                                  "TOPIC_PER_REQUEST | CUSTOM_ASSIGNMENT>";
 
+  private static final String SCHEDULER_TICK_DURATION_DOC = "Resolution in milliseconds of the timer wheel " +
+                                                                "scheduling the requests of a task.";
+  private static final String TASK_INDEX_DOC = "Set by the connector: the index of the task, the task tag of its " +
+                                                   "metrics";
+
+  private final Long batchLinger;
+  private final Integer completionQueueCapacity;
+  private final Integer executorThreads;
+  private final Integer ioThreads;
+  private final Long maxBatchBytes;
+  private final Integer maxBatchRecords;
+  private final Long rebalanceCheckInterval;
+  private final Double rebalanceThreshold;
+  private final String requestDirectoryExcluded;
+  private final Integer requestDirectoryShard;
+  private final Integer requestDirectoryShards;
+  private final String requestMsgDirectory;
   private final List<File> requestMsgFiles;
+  private final String requestMsgGlob;
   private final String requestTopicAssignment;
+  private final Long schedulerTickDuration;
+  private final Integer taskIndex;
 
 
   public AbstractSoapSourceConfig(ConfigDef definition, Map<?, ?> originals) {
@@ -51,6 +117,9 @@ public class AbstractSoapSourceConfig extends AbstractSoapConfig {
 
     requestMsgFiles = new ArrayList<>();
     for (String f : this.getString(REQUEST_MSG_FILES).split(",")) {
+      if (f.trim().isEmpty()) {
+        continue;
+      }
       File file = new File(f.trim());
       if (!file.isAbsolute()) {
         throw new ConfigException(
@@ -61,15 +130,59 @@ public class AbstractSoapSourceConfig extends AbstractSoapConfig {
       }
       requestMsgFiles.add(file);
     }
+    requestMsgDirectory = this.getString(REQUEST_MSG_DIRECTORY).trim();
+    if (!requestMsgDirectory.isEmpty() && !new File(requestMsgDirectory).isAbsolute()) {
+      throw new ConfigException(REQUEST_MSG_DIRECTORY, requestMsgDirectory, "Must be an absolute path.");
+    }
+    if (requestMsgFiles.isEmpty() && requestMsgDirectory.isEmpty()) {
+      throw new ConfigException("No request file provided: set " + REQUEST_MSG_FILES + " or " +
+                                    REQUEST_MSG_DIRECTORY);
+    }
+    requestMsgGlob = this.getString(REQUEST_MSG_GLOB);
+    requestDirectoryExcluded = this.getString(REQUEST_DIRECTORY_EXCLUDED);
+    requestDirectoryShard = this.getInt(REQUEST_DIRECTORY_SHARD);
+    requestDirectoryShards = this.getInt(REQUEST_DIRECTORY_SHARDS);
 
     requestTopicAssignment = this.getString(REQUEST_TOPIC_ASSIGNMENT);
+    batchLinger = this.getLong(BATCH_LINGER);
+    completionQueueCapacity = this.getInt(COMPLETION_QUEUE_CAPACITY);
+    executorThreads = this.getInt(EXECUTOR_THREADS);
+    ioThreads = this.getInt(IO_THREADS);
+    maxBatchBytes = this.getLong(MAX_BATCH_BYTES);
+    maxBatchRecords = this.getInt(MAX_BATCH_RECORDS);
+    rebalanceCheckInterval = this.getLong(REBALANCE_CHECK_INTERVAL);
+    rebalanceThreshold = this.getDouble(REBALANCE_THRESHOLD);
+    schedulerTickDuration = this.getLong(SCHEDULER_TICK_DURATION);
+    taskIndex = this.getInt(TASK_INDEX);
   }
 
   public static ConfigDef config() {
 
     return AbstractSoapConfig.config()
-        .define(REQUEST_MSG_FILES, Type.STRING, Importance.HIGH, REQUEST_MSG_FILES_DOC)
+        .define(REQUEST_MSG_FILES, Type.STRING, "", Importance.HIGH, REQUEST_MSG_FILES_DOC)
+        .define(REQUEST_MSG_DIRECTORY, Type.STRING, "", Importance.HIGH, REQUEST_MSG_DIRECTORY_DOC)
+        .define(REQUEST_MSG_GLOB, Type.STRING, "*.xml", Importance.MEDIUM, REQUEST_MSG_GLOB_DOC)
+        .define(REQUEST_DIRECTORY_EXCLUDED, Type.STRING, "", Importance.LOW, REQUEST_DIRECTORY_EXCLUDED_DOC)
+        .define(REQUEST_DIRECTORY_SHARD, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW,
+            REQUEST_DIRECTORY_SHARD_DOC)
+        .define(REQUEST_DIRECTORY_SHARDS, Type.INT, 1, ConfigDef.Range.atLeast(1), Importance.LOW,
+            REQUEST_DIRECTORY_SHARDS_DOC)
         .define(REQUEST_TOPIC_ASSIGNMENT, Type.STRING, "TOPIC_PER_REQUEST", Importance.HIGH,
-            REQUEST_TOPIC_ASSIGNMENT_DOC);
+            REQUEST_TOPIC_ASSIGNMENT_DOC)
+        .define(COMPLETION_QUEUE_CAPACITY, Type.INT, 1000, ConfigDef.Range.atLeast(1), Importance.LOW,
+            COMPLETION_QUEUE_CAPACITY_DOC)
+        .define(EXECUTOR_THREADS, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.MEDIUM, EXECUTOR_THREADS_DOC)
+        .define(IO_THREADS, Type.INT, 16, ConfigDef.Range.atLeast(1), Importance.LOW, IO_THREADS_DOC)
+        .define(BATCH_LINGER, Type.LONG, 0, ConfigDef.Range.atLeast(0), Importance.MEDIUM, BATCH_LINGER_DOC)
+        .define(MAX_BATCH_BYTES, Type.LONG, 0, ConfigDef.Range.atLeast(0), Importance.MEDIUM, MAX_BATCH_BYTES_DOC)
+        .define(MAX_BATCH_RECORDS, Type.INT, 1000, ConfigDef.Range.atLeast(1), Importance.MEDIUM,
+            MAX_BATCH_RECORDS_DOC)
+        .define(REBALANCE_CHECK_INTERVAL, Type.LONG, 300000, ConfigDef.Range.atLeast(0), Importance.LOW,
+            REBALANCE_CHECK_INTERVAL_DOC)
+        .define(REBALANCE_THRESHOLD, Type.DOUBLE, 0.25, ConfigDef.Range.atLeast(0.0), Importance.LOW,
+            REBALANCE_THRESHOLD_DOC)
+        .define(SCHEDULER_TICK_DURATION, Type.LONG, 100, ConfigDef.Range.atLeast(1), Importance.LOW,
+            SCHEDULER_TICK_DURATION_DOC)
+        .define(TASK_INDEX, Type.INT, 0, ConfigDef.Range.atLeast(0), Importance.LOW, TASK_INDEX_DOC);
   }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+import lombok.Getter;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+
+/**
+ * A mapped record waiting in the completion queue, with the poller that produced it and an estimate of its size.
+ */
+@Getter
+public class PolledRecord {
+
+  private static final int SCALAR_SIZE = 8;
+
+  private final SoapRequestPoller poller;
+  private final SourceRecord record;
+  private final long size;
+
+  public PolledRecord(SoapRequestPoller poller, SourceRecord record) {
+    this.poller = poller;
+    this.record = record;
+    this.size = record == null ? 0 : sizeOf(record.key()) + sizeOf(record.value());
+  }
+
+  static long sizeOf(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof String) {
+      return ((String) value).length();
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof ByteBuffer) {
+      return ((ByteBuffer) value).remaining();
+    }
+    if (value instanceof Struct) {
+      Struct struct = (Struct) value;
+      long size = 0;
+      for (Field field : struct.schema().fields()) {
+        size += sizeOf(struct.get(field));
+      }
+      return size;
+    }
+    if (value instanceof Collection) {
+      long size = 0;
+      for (Object item : (Collection<?>) value) {
+        size += sizeOf(item);
+      }
+      return size;
+    }
+    if (value instanceof Map) {
+      long size = 0;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+      }
+      return size;
+    }
+    return SCALAR_SIZE;
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Announces the request files of a directory that fall in this task's share, by the hash of their name, as they
+ * show up and go away.
+ */
+@Slf4j
+class RequestDirectoryWatcher implements Closeable {
+
+  interface Listener {
+
+    void added(Path file);
+
+    void removed(Path file);
+  }
+
+  private static final long STOP_TIMEOUT_MS = 5000L;
+
+  private final Path directory;
+  private final PathMatcher matcher;
+  private final int shard;
+  private final int shards;
+  private final Listener listener;
+  private final Set<Path> known = new HashSet<>();
+  private WatchService watchService;
+  private Thread thread;
+
+  RequestDirectoryWatcher(Path directory, String glob, int shard, int shards, Listener listener) {
+    this.directory = directory;
+    this.matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+    this.shard = shard;
+    this.shards = Math.max(shards, 1);
+    this.listener = listener;
+  }
+
+  void start() throws IOException {
+    // registered before the first listing, so a file created in between is not missed
+    watchService = directory.getFileSystem().newWatchService();
+    directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    thread = new Thread(this::run, "soap-request-watcher-" + shard);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  boolean owns(Path file) {
+    Path name = file.getFileName();
+    return name != null && matcher.matches(name) && Math.floorMod(name.toString().hashCode(), shards) == shard;
+  }
+
+  synchronized Set<Path> files() {
+    return new HashSet<>(known);
+  }
+
+  private void run() {
+    try {
+      rescan();
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.take();
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW) {
+            overflow = true;
+          } else {
+            Path file = directory.resolve((Path) event.context());
+            if (owns(file)) {
+              handle(event.kind(), file);
+            }
+          }
+        }
+        if (overflow) {
+          log.info("Events of request directory {} were lost, listing it again", directory);
+          rescan();
+        }
+        if (!key.reset()) {
+          log.warn("Request directory {} is no longer accessible, its requests keep running", directory);
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      log.debug("Request directory watcher of {} stopped", directory);
+    } catch (IOException e) {
+      log.error("Request directory {} not readable", directory, e);
+    }
+  }
+
+  private synchronized void rescan() throws IOException {
+    Set<Path> present = new HashSet<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        if (Files.isRegularFile(file) && owns(file)) {
+          present.add(file);
+        }
+      }
+    }
+    for (Path file : new HashSet<>(known)) {
+      if (!present.contains(file)) {
+        remove(file);
+      }
+    }
+    for (Path file : present) {
+      add(file);
+    }
+    log.info("Request directory {} lists {} files for task share {}/{}", directory, known.size(), shard, shards);
+  }
+
+  private synchronized void handle(WatchEvent.Kind<?> kind, Path file) {
+    if (kind == ENTRY_DELETE) {
+      remove(file);
+    } else if (Files.isRegularFile(file)) {
+      if (!add(file)) {
+        log.debug("Request file {} changed, reloaded on its next call", file);
+      }
+    }
+  }
+
+  private boolean add(Path file) {
+    if (!known.add(file)) {
+      return false;
+    }
+    try {
+      listener.added(file);
+      log.info("Request file {} added", file);
+    } catch (RuntimeException e) {
+      known.remove(file);
+      log.error("Request file {} not started, retried when it changes", file, e);
+    }
+    return true;
+  }
+
+  private void remove(Path file) {
+    if (known.remove(file)) {
+      try {
+        listener.removed(file);
+        log.info("Request file {} removed", file);
+      } catch (RuntimeException e) {
+        log.error("Request file {} not stopped cleanly", file, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+    if (thread != null) {
+      thread.interrupt();
+      try {
+        thread.join(STOP_TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,601 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import com.github.ogomezso.kafka.connect.soap.client.SoapClient;
+import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
+import com.github.ogomezso.kafka.connect.soap.metrics.RequestMetrics;
+import com.github.ogomezso.kafka.connect.soap.model.AttachmentOffloader;
+import com.github.ogomezso.kafka.connect.soap.model.ContentFingerprint;
+import com.github.ogomezso.kafka.connect.soap.model.ItemSnapshot;
+import com.github.ogomezso.kafka.connect.soap.model.ItemSplitter;
+import com.github.ogomezso.kafka.connect.soap.model.RecordKey;
+import com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapper;
+import com.github.ogomezso.kafka.connect.soap.model.ValueFormat;
+import com.github.ogomezso.kafka.connect.soap.model.XPathExtractor;
+import com.github.ogomezso.kafka.connect.soap.scheduler.AdaptiveInterval;
+import com.github.ogomezso.kafka.connect.soap.scheduler.HashedWheelScheduler;
+import jakarta.xml.soap.SOAPException;
+import jakarta.xml.soap.SOAPMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.w3c.dom.Element;
+
+import javax.xml.transform.TransformerException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One request of a task: fetches the response through its {@link SoapClient}, maps it and hands the resulting record
+ * over to the task's completion queue. Each cycle runs on the client's executor and, once finished, asks the task's
+ * timer wheel to fire again after the request's own poll interval, so a slow endpoint only delays its own records.
+ * <p>
+ * With a watermark XPath configured the request is polled incrementally: the highest watermark seen so far is sent as
+ * {@code ${watermark}} in the request, empty until one is known, and stored in the offset of every record, so a
+ * restart resumes from it.
+ * <p>
+ * With a page token XPath configured a cycle follows the pages of the response, each one mapped and queued as soon as
+ * it arrives so no more than the current and the prefetched page are held in memory.
+ * <p>
+ * With a split element path every item of a response becomes a record keyed by its own id. Change capture goes one
+ * step further and only emits the items inserted or changed since the previous response, plus a tombstone for each
+ * deleted one, each record telling which in its {@value #OPERATION_HEADER} header.
+ * <p>
+ * With unchanged response suppression a response whose {@link ContentFingerprint} matches the last one emitted is
+ * dropped; the fingerprint travels in the offset, so suppression survives restarts.
+ * <p>
+ * With an attachment directory, MTOM attachments are offloaded to files by an {@link AttachmentOffloader} before the
+ * response is read, and records refer to the files.
+ * <p>
+ * The delay before the next cycle comes from an {@link AdaptiveInterval}: failed cycles back off, and with adaptive
+ * polling changed and unchanged responses shorten and lengthen it.
+ * <p>
+ * A request using none of the above over the HTTP transport is mapped straight from the response stream; split or
+ * with change capture, item by item as the items are read, so the response is never held in memory as a whole.
+ * <p>
+ * With an in-flight limit the first call of a cycle is made asynchronously: it blocks an I/O thread of the
+ * {@link SharedExecutor} rather than an executor thread, the response is processed on the executor once it arrives,
+ * and the next cycle is scheduled from there.
+ * <p>
+ * Mapping time, records and failures go to the {@link RequestMetrics} of the client, next to its call latencies.
+ */
+@Slf4j
+public class SoapRequestPoller implements Runnable {
+
+  public static final String PAGE_NUMBER = "pageNumber";
+  public static final String PAGE_TOKEN = "pageToken";
+  public static final String DELETE = "DELETE";
+  public static final String FINGERPRINT = "fingerprint";
+  public static final String OPERATION_HEADER = "soap.operation";
+  public static final String WATERMARK = "watermark";
+
+  private final SoapClient client;
+  private final SourceRecordMapper mapper;
+  private final RecordKey recordKey;
+  private final String topic;
+  private final BlockingQueue<PolledRecord> completionQueue;
+  private final long pollInterval;
+  private final int quota;
+  private final ValueFormat valueFormat;
+  private final XPathExtractor watermarkExtractor;
+  private final XPathExtractor pageTokenExtractor;
+  private final ItemSplitter splitter;
+  private final ItemSnapshot snapshot;
+  private final int maxPages;
+  private final boolean pagePrefetch;
+  private final boolean suppressUnchanged;
+  private final boolean streamResponses;
+  private final AttachmentOffloader attachmentOffloader;
+  private final boolean adaptToChanges;
+  private final AdaptiveInterval interval;
+  private final RequestMetrics metrics;
+  private final boolean ownsMetrics;
+  private final AtomicInteger pendingRecords = new AtomicInteger();
+
+  private HashedWheelScheduler scheduler;
+  private volatile HashedWheelScheduler.WheelTimeout nextPoll;
+  private volatile boolean stopped;
+  private volatile String watermark;
+  private volatile String fingerprint;
+  private volatile String lastResponseFingerprint;
+  private volatile long emittedRecords;
+  // the cycle stopped following pages the service still had, so it has not seen every item
+  private boolean pagingCut;
+
+  public SoapRequestPoller(SoapClient client, SourceRecordMapper mapper, RecordKey recordKey, String topic,
+                           BlockingQueue<PolledRecord> completionQueue) {
+    this.client = client;
+    this.mapper = mapper;
+    this.recordKey = recordKey;
+    this.topic = topic;
+    this.completionQueue = completionQueue;
+    this.pollInterval = client.getConfig().getLong(SoapClientConfig.POLL_INTERVAL);
+    this.quota = client.getConfig().getInt(SoapClientConfig.REQUEST_QUOTA);
+    this.valueFormat = ValueFormat.valueOf(client.getConfig().getString(SoapClientConfig.VALUE_FORMAT));
+    String watermarkPath = client.getConfig().getString(SoapClientConfig.WATERMARK_PATH);
+    if (watermarkPath != null && !watermarkPath.isEmpty()) {
+      this.watermarkExtractor = new XPathExtractor(watermarkPath);
+      String initial = client.getConfig().getString(SoapClientConfig.WATERMARK_INITIAL_VALUE);
+      this.watermark = initial == null || initial.isEmpty() ? null : initial;
+    } else {
+      this.watermarkExtractor = null;
+    }
+    String pageTokenPath = client.getConfig().getString(SoapClientConfig.PAGE_TOKEN_PATH);
+    this.pageTokenExtractor = pageTokenPath == null || pageTokenPath.isEmpty() ? null
+        : new XPathExtractor(pageTokenPath);
+    this.maxPages = client.getConfig().getInt(SoapClientConfig.MAX_PAGES);
+    String splitPath = client.getConfig().getString(SoapClientConfig.SPLIT_ELEMENT_PATH);
+    this.splitter = splitPath == null || splitPath.isEmpty() ? null
+        : new ItemSplitter(splitPath, client.getConfig().getString(SoapClientConfig.SPLIT_ITEM_KEY));
+    this.pagePrefetch = Boolean.TRUE.equals(client.getConfig().getBoolean(SoapClientConfig.PAGE_PREFETCH));
+    if (Boolean.TRUE.equals(client.getConfig().getBoolean(SoapClientConfig.CHANGE_CAPTURE))) {
+      String itemKey = client.getConfig().getString(SoapClientConfig.SPLIT_ITEM_KEY);
+      if (splitter == null || itemKey == null || itemKey.isEmpty()) {
+        throw new ConfigException("Change capture of " + recordKey.getRequestType() + " needs "
+            + SoapClientConfig.SPLIT_ELEMENT_PATH + " and " + SoapClientConfig.SPLIT_ITEM_KEY);
+      }
+      this.snapshot = new ItemSnapshot();
+    } else {
+      this.snapshot = null;
+    }
+    String attachmentDirectory = client.getConfig().getString(SoapClientConfig.ATTACHMENT_DIRECTORY);
+    this.attachmentOffloader = attachmentDirectory == null || attachmentDirectory.isEmpty() ? null
+        : new AttachmentOffloader(Paths.get(attachmentDirectory));
+    boolean suppress = Boolean.TRUE.equals(client.getConfig().getBoolean(SoapClientConfig.SUPPRESS_UNCHANGED));
+    if (suppress && pageTokenExtractor != null) {
+      log.warn("Unchanged response suppression does not apply to the paged request {}", recordKey.getRequestType());
+    }
+    this.suppressUnchanged = suppress && pageTokenExtractor == null;
+    this.adaptToChanges = Boolean.TRUE.equals(client.getConfig().getBoolean(SoapClientConfig.ADAPTIVE_POLLING));
+    this.interval = new AdaptiveInterval(pollInterval, client.getConfig().getLong(SoapClientConfig.MIN_POLL_INTERVAL),
+        client.getConfig().getLong(SoapClientConfig.MAX_POLL_INTERVAL),
+        client.getConfig().getDouble(SoapClientConfig.POLL_BACKOFF_MULTIPLIER), adaptToChanges);
+    this.ownsMetrics = client.getMetrics() == null;
+    this.metrics = ownsMetrics ? RequestMetrics.unregistered(String.valueOf(recordKey.getRequestType()))
+        : client.getMetrics();
+    // every other feature needs the response as a tree, a plain or split request can be mapped while it is read
+    this.streamResponses = client.streamsResponses() && watermarkExtractor == null && pageTokenExtractor == null
+        && !suppressUnchanged && attachmentOffloader == null && !adaptToChanges;
+  }
+
+  public SoapClient getClient() {
+    return client;
+  }
+
+  public RecordKey getRecordKey() {
+    return recordKey;
+  }
+
+  /**
+   * Whether the records of this request carry an offset worth restoring on start.
+   */
+  public boolean tracksOffset() {
+    return watermarkExtractor != null || suppressUnchanged;
+  }
+
+  /**
+   * Resumes from the offset Connect committed for this request, if any.
+   */
+  public void restore(Map<String, Object> offset) {
+    if (offset == null) {
+      return;
+    }
+    if (watermarkExtractor != null && offset.get(WATERMARK) != null) {
+      watermark = offset.get(WATERMARK).toString();
+      log.info("Resuming {} from watermark {}", recordKey.getRequestType(), watermark);
+    }
+    if (suppressUnchanged && offset.get(FINGERPRINT) != null) {
+      fingerprint = offset.get(FINGERPRINT).toString();
+    }
+  }
+
+  String getWatermark() {
+    return watermark;
+  }
+
+  String getFingerprint() {
+    return fingerprint;
+  }
+
+  long getCurrentInterval() {
+    return interval.current();
+  }
+
+  public void start(HashedWheelScheduler scheduler) {
+    this.scheduler = scheduler;
+    scheduleNext(null);
+  }
+
+  public void stop() {
+    stopped = true;
+    if (nextPoll != null) {
+      nextPoll.cancel();
+    }
+    if (ownsMetrics) {
+      metrics.release();
+    }
+  }
+
+  /**
+   * Called by the task once one of our records has been returned to Connect.
+   */
+  public void release() {
+    pendingRecords.decrementAndGet();
+  }
+
+  private void scheduleNext(AdaptiveInterval.Outcome outcome) {
+    long delay = interval.next(outcome);
+    if (delay != pollInterval) {
+      log.debug("Next call of {} in {} ms after a {} cycle", recordKey.getRequestType(), delay, outcome);
+    }
+    if (!stopped && scheduler != null) {
+      nextPoll = scheduler.schedule(() -> client.submit(this), delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void emit(SourceRecord record) throws InterruptedException {
+    completionQueue.put(new PolledRecord(this, record));
+    pendingRecords.incrementAndGet();
+    emittedRecords++;
+    metrics.recordRecord();
+  }
+
+  private void emitItems(SOAPMessage response, Map<String, ?> itemOffset, Map<String, ?> lastItemOffset)
+      throws SOAPException, IOException, TransformerException, InterruptedException {
+    List<Element> items = splitter.items(response.getSOAPBody());
+    for (int i = 0; i < items.size(); i++) {
+      // with change capture any item may be the last one emitted, so every one carries the new offset
+      emitItem(items.get(i), i, snapshot != null || i == items.size() - 1 ? lastItemOffset : itemOffset);
+    }
+  }
+
+  private void emitItem(Element item, int position, Map<String, ?> offset)
+      throws SOAPException, IOException, TransformerException, InterruptedException {
+    String itemId = splitter.itemId(item, position);
+    ItemSnapshot.Change change = null;
+    long contentHash = 0L;
+    if (snapshot != null) {
+      contentHash = ContentFingerprint.hash(item);
+      change = snapshot.compare(itemId, contentHash);
+      if (change == ItemSnapshot.Change.UNCHANGED) {
+        snapshot.put(itemId, contentHash);
+        return;
+      }
+    }
+    // a key per item spreads the records of one response over the topic partitions
+    RecordKey itemKey = recordKey.toBuilder().itemId(itemId).build();
+    long mappingStart = System.nanoTime();
+    SourceRecord record = mapper.getSourceRecordFromItem(itemKey, item, topic, valueFormat, offset);
+    metrics.recordMapping(mappingStart);
+    if (change != null) {
+      record.headers().addString(OPERATION_HEADER, change.name());
+    }
+    emit(record);
+    if (snapshot != null) {
+      // only once queued: an item failing to map or queue is still a change the next cycle
+      snapshot.put(itemId, contentHash);
+    }
+  }
+
+  private void emitDeletions(Map<String, ?> offset) throws IOException, InterruptedException {
+    List<String> deleted = new ArrayList<>();
+    snapshot.removeUnseen(deleted::add);
+    for (String itemId : deleted) {
+      SourceRecord tombstone = mapper.getTombstone(recordKey.toBuilder().itemId(itemId).build(), topic, offset);
+      tombstone.headers().addString(OPERATION_HEADER, DELETE);
+      emit(tombstone);
+    }
+  }
+
+  /**
+   * Until a first watermark is known, an empty one: the request never goes out with the placeholder itself in it.
+   */
+  private Map<String, String> templateVariables(String watermark, String pageToken, int pageNumber) {
+    String sentWatermark = watermarkExtractor == null ? null : watermark == null ? "" : watermark;
+    if (pageTokenExtractor == null) {
+      return sentWatermark == null ? Collections.emptyMap() : Collections.singletonMap(WATERMARK, sentWatermark);
+    }
+    Map<String, String> variables = new HashMap<>();
+    if (sentWatermark != null) {
+      variables.put(WATERMARK, sentWatermark);
+    }
+    variables.put(PAGE_TOKEN, pageToken == null ? "" : pageToken);
+    variables.put(PAGE_NUMBER, String.valueOf(pageNumber));
+    return variables;
+  }
+
+  private Map<String, ?> offset(String watermark, String fingerprint) {
+    if (fingerprint == null) {
+      return watermark == null ? Collections.emptyMap() : Collections.singletonMap(WATERMARK, watermark);
+    }
+    Map<String, String> offset = new HashMap<>();
+    if (watermark != null) {
+      offset.put(WATERMARK, watermark);
+    }
+    offset.put(FINGERPRINT, fingerprint);
+    return offset;
+  }
+
+  private String nextPageToken(SOAPMessage response, String currentToken, int page) throws SOAPException {
+    if (pageTokenExtractor == null) {
+      return null;
+    }
+    String token = pageTokenExtractor.first(response.getSOAPBody());
+    if (token == null) {
+      return null;
+    }
+    if (page >= maxPages) {
+      log.warn("Stopping {} after {} pages, there are more", recordKey.getRequestType(), page);
+      pagingCut = true;
+      return null;
+    }
+    if (token.equals(currentToken)) {
+      log.warn("Stopping {} at page {}: the service returned the same page token again", recordKey.getRequestType(),
+          page);
+      pagingCut = true;
+      return null;
+    }
+    return token;
+  }
+
+  /**
+   * The call for a page. With prefetch it is already running, asynchronously or on the executor, while the current
+   * page is mapped; otherwise, or if no thread picked it up yet, {@link #await} runs it on the calling thread.
+   */
+  private Future<SOAPMessage> fetch(Map<String, String> variables) {
+    if (pagePrefetch && client.invokesAsync()) {
+      return client.callAsync(variables);
+    }
+    FutureTask<SOAPMessage> call = new FutureTask<>(() -> client.call(variables));
+    if (pagePrefetch) {
+      client.submit(call);
+    }
+    return call;
+  }
+
+  private SOAPMessage await(Future<SOAPMessage> call) throws Exception {
+    if (call instanceof RunnableFuture) {
+      // a no-op when the executor already started it, and no deadlock when all its threads are busy polling
+      ((RunnableFuture<SOAPMessage>) call).run();
+    }
+    try {
+      return call.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  @Override
+  public void run() {
+    boolean scheduledOnCompletion = false;
+    AdaptiveInterval.Outcome outcome = null;
+    try {
+      if (quota > 0 && pendingRecords.get() >= quota) {
+        log.debug("Quota of {} pending records reached for {}, skipping call", quota, recordKey.getRequestType());
+        return;
+      }
+      if (client.invokesAsync()) {
+        CompletableFuture<AdaptiveInterval.Outcome> cycle = pollAsync();
+        scheduledOnCompletion = true;
+        cycle.whenComplete((done, error) -> scheduleNext(error != null ? AdaptiveInterval.Outcome.FAILED : done));
+        return;
+      }
+      outcome = poll();
+    } finally {
+      if (!scheduledOnCompletion) {
+        scheduleNext(outcome);
+      }
+    }
+  }
+
+  private AdaptiveInterval.Outcome poll() {
+    // never let an exception escape: it would be swallowed by the executor
+    try {
+      if (streamResponses) {
+        try (InputStream response = client.callStream(Collections.emptyMap())) {
+          return emitStream(response);
+        }
+      }
+      return process(client.call(templateVariables(watermark, null, 1)));
+    } catch (Exception e) {
+      return failed(e);
+    }
+  }
+
+  /**
+   * Starts the first call of the cycle without holding a thread while it is in flight; the response is then processed
+   * on the executor, never on the thread completing the call.
+   */
+  private CompletableFuture<AdaptiveInterval.Outcome> pollAsync() {
+    if (streamResponses) {
+      return client.callStreamAsync(Collections.emptyMap()).handleAsync((response, error) -> {
+        try (InputStream in = response) {
+          if (error != null) {
+            return failed(error);
+          }
+          return emitStream(in);
+        } catch (Exception e) {
+          return failed(e);
+        }
+      }, client::submit);
+    }
+    return client.callAsync(templateVariables(watermark, null, 1)).handleAsync((response, error) -> {
+      try {
+        if (error != null) {
+          return failed(error);
+        }
+        return process(response);
+      } catch (Exception e) {
+        return failed(e);
+      }
+    }, client::submit);
+  }
+
+  private AdaptiveInterval.Outcome emitStream(InputStream response) throws Exception {
+    if (splitter != null) {
+      return emitItemStream(response);
+    }
+    // reading the response is mapping it: the time includes the transfer of the body
+    long mappingStart = System.nanoTime();
+    SourceRecord record = mapper.getSourceRecordFromStream(recordKey, response, topic, valueFormat,
+        Collections.emptyMap());
+    metrics.recordMapping(mappingStart);
+    emit(record);
+    return AdaptiveInterval.Outcome.CHANGED;
+  }
+
+  /**
+   * Maps and queues every item as soon as it is read; a streamed request carries no offset.
+   */
+  private AdaptiveInterval.Outcome emitItemStream(InputStream response) throws Exception {
+    long emittedBefore = emittedRecords;
+    if (snapshot != null) {
+      snapshot.beginCycle();
+    }
+    splitter.forEachItem(response, (item, position) -> emitItem(item, position, Collections.emptyMap()));
+    if (snapshot == null) {
+      return AdaptiveInterval.Outcome.CHANGED;
+    }
+    emitDeletions(Collections.emptyMap());
+    return emittedRecords != emittedBefore ? AdaptiveInterval.Outcome.CHANGED : AdaptiveInterval.Outcome.UNCHANGED;
+  }
+
+  /**
+   * Maps the first response of a cycle, then follows its pages if any. Tells whether the response changed since the
+   * previous cycle, as far as it can be known without extra work unless adapting to changes.
+   */
+  private AdaptiveInterval.Outcome process(SOAPMessage firstResponse) throws Exception {
+    SOAPMessage response = firstResponse;
+    // every page of a cycle asks for the same watermark; the new one applies from the next cycle
+    String startWatermark = watermark;
+    String highestWatermark = startWatermark;
+    String startFingerprint = fingerprint;
+    String responseFingerprint = null;
+    String pageToken = null;
+    long emittedBefore = emittedRecords;
+    boolean changed = true;
+    // before anything reads the payload, so the fingerprint and the records see the references, not the content
+    offloadAttachments(response);
+    if (suppressUnchanged) {
+      responseFingerprint = ContentFingerprint.of(response.getSOAPBody());
+      if (responseFingerprint.equals(startFingerprint)) {
+        log.debug("Response of {} unchanged, nothing to emit", recordKey.getRequestType());
+        return AdaptiveInterval.Outcome.UNCHANGED;
+      }
+    } else if (adaptToChanges && snapshot == null) {
+      // the first page stands for the whole response
+      String current = ContentFingerprint.of(response.getSOAPBody());
+      changed = !current.equals(lastResponseFingerprint);
+      lastResponseFingerprint = current;
+    }
+    if (snapshot != null) {
+      snapshot.beginCycle();
+    }
+    pagingCut = false;
+    for (int page = 1; ; page++) {
+      // read before mapping: the serialized mapping fallback detaches the payload from the body
+      String nextToken = nextPageToken(response, pageToken, page);
+      Future<SOAPMessage> nextPage = nextToken == null ? null
+          : fetch(templateVariables(startWatermark, nextToken, page + 1));
+      if (watermarkExtractor != null) {
+        String latest = watermarkExtractor.max(response.getSOAPBody());
+        if (XPathExtractor.compare(latest, highestWatermark) > 0) {
+          highestWatermark = latest;
+        }
+      }
+      // only the last record moves the offset forward, a restart in the middle of a cycle repeats the whole cycle
+      Map<String, ?> startOffset = offset(startWatermark, startFingerprint);
+      Map<String, ?> offset = nextPage == null ? offset(highestWatermark, responseFingerprint) : startOffset;
+      if (splitter == null) {
+        long mappingStart = System.nanoTime();
+        SourceRecord record = mapper.getSourceRecordFromSoapMessage(recordKey, response, topic, valueFormat, offset);
+        metrics.recordMapping(mappingStart);
+        emit(record);
+      } else {
+        emitItems(response, startOffset, offset);
+      }
+      if (nextPage == null) {
+        break;
+      }
+      pageToken = nextToken;
+      response = await(nextPage);
+      offloadAttachments(response);
+    }
+    if (snapshot != null && !pagingCut) {
+      emitDeletions(offset(highestWatermark, responseFingerprint));
+    } else if (snapshot != null) {
+      log.warn("Not emitting deletions of {}: the items of the pages not read were not compared",
+          recordKey.getRequestType());
+    }
+    watermark = highestWatermark;
+    if (responseFingerprint != null) {
+      fingerprint = responseFingerprint;
+    }
+    if (snapshot != null) {
+      // change capture only emits what changed
+      changed = emittedRecords != emittedBefore;
+    }
+    return changed ? AdaptiveInterval.Outcome.CHANGED : AdaptiveInterval.Outcome.UNCHANGED;
+  }
+
+  private void offloadAttachments(SOAPMessage response) throws SOAPException, IOException {
+    if (attachmentOffloader != null) {
+      int offloaded = attachmentOffloader.offload(response, recordKey);
+      if (offloaded > 0) {
+        log.debug("{} attachments of {} offloaded", offloaded, recordKey.getRequestType());
+      }
+    }
+  }
+
+  /**
+   * Logs why a cycle did not complete and tells how it went: failed, or skipped ({@code null}) when the in-flight
+   * limit of the endpoint refused the call, which is local throttling, not an error of the endpoint.
+   */
+  private AdaptiveInterval.Outcome failed(Throwable error) {
+    Throwable e = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    if (e instanceof RejectedExecutionException) {
+      log.warn("Skipping a call of {}: {}", recordKey.getRequestType(), e.getMessage());
+      return null;
+    }
+    metrics.recordError(e);
+    if (e instanceof InterruptedException) {
+      Thread.currentThread().interrupt();
+    } else if (e instanceof SOAPException) {
+      log.error("Error getting response from SOAP Client", e);
+    } else if (e instanceof TransformerException || e instanceof IOException) {
+      log.error("Error processing the Source Record", e);
+    } else {
+      log.error("Error getting response from SOAP Client", e);
+    }
+    return AdaptiveInterval.Outcome.FAILED;
+  }
+}
@@ -26,28 +26,49 @@ import org.apache.kafka.connect.source.SourceConnector;
 import com.github.jcustenborder.kafka.connect.utils.VersionUtil;
 import com.github.jcustenborder.kafka.connect.utils.config.Description;
 import com.github.jcustenborder.kafka.connect.utils.config.Title;
+import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
+import com.github.ogomezso.kafka.connect.soap.metrics.RequestMetrics;
+import com.github.ogomezso.kafka.connect.soap.metrics.SoapMetrics;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Description("Kafka Connect source connector for SOAP Services")
 @Title("Kafka Connect SOAP")
 @Slf4j
 public class SoapSourceConnector extends SourceConnector {
 
+  private static final String CONNECTOR_NAME = "name";
+
   Map<String, String> settings;
   SoapSourceConnectorConfig config;
+  private volatile String[] files;
+  private volatile List<List<Integer>> assignment;
+  private ScheduledExecutorService balanceMonitor;
 
   @Override
   public void start(Map<String, String> map) {
     log.info("Starting Server Sent Events Source Connector");
     this.config = new SoapSourceConnectorConfig(SoapSourceConnectorConfig.config(), map);
     this.settings = map;
+    long checkInterval = config.getLong(SoapSourceConnectorConfig.REBALANCE_CHECK_INTERVAL);
+    if (checkInterval > 0 && context != null) {
+      balanceMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "soap-balance-monitor");
+        t.setDaemon(true);
+        return t;
+      });
+      balanceMonitor.scheduleAtFixedRate(this::checkBalance, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
   }
 
   @Override
@@ -58,19 +79,25 @@ public class SoapSourceConnector extends SourceConnector {
   @Override
   public List<Map<String, String>> taskConfigs(int maxTasks) {
     ArrayList<Map<String, String>> taskConfigs = new ArrayList<>();
-    if (!this.config.getString(SoapSourceConnectorConfig.REQUEST_MSG_FILES).isEmpty()) {
-      String[] files = this.config.getString(SoapSourceConnectorConfig.REQUEST_MSG_FILES).split(",");
+    boolean directory = !this.config.getString(SoapSourceConnectorConfig.REQUEST_MSG_DIRECTORY).trim().isEmpty();
+    if (!this.config.getString(SoapSourceConnectorConfig.REQUEST_MSG_FILES).trim().isEmpty() || directory) {
+      String[] files = Arrays.stream(this.config.getString(SoapSourceConnectorConfig.REQUEST_MSG_FILES).split(","))
+          .map(String::trim)
+          .filter(f -> !f.isEmpty())
+          .toArray(String[]::new);
       String[] topics = this.config.getString(SoapSourceConnectorConfig.TOPIC).split(",");
-      Arrays.setAll(files, i -> files[i].trim());
       Arrays.setAll(topics, i -> topics[i].trim());
 
-      final int tasks = Math.min(maxTasks, files.length); // determine the actual no of tasks
+      // the files of a directory are only known while running: every task takes a share of them
+      final int tasks = directory ? maxTasks : Math.min(maxTasks, files.length); // determine the actual no of tasks
+      // requests of equal cost are still dealt round-robin
+      List<List<Integer>> balanced = TaskAssignment.balance(estimateCosts(files), tasks);
 
       for (int i = 0; i < tasks; i++) {
         Map<String, String> taskConfig = new HashMap<>(settings);
         StringBuilder taskFiles = new StringBuilder();
         StringBuilder taskTopics = new StringBuilder();
-        for (int j = i; j < files.length; j = j + tasks) {            // distribute files (& topics) round-robin
+        for (int j : balanced.get(i)) {            // distribute files (& topics) by cost
           taskFiles
               .append(taskFiles.length() == 0 ? "" : ", ")
               .append(files[j]);
@@ -82,21 +109,98 @@ public class SoapSourceConnector extends SourceConnector {
           }
         }
 
+        taskConfig.put(SoapSourceTaskConfig.TASK_INDEX, String.valueOf(i));
         taskConfig.put(SoapSourceTaskConfig.REQUEST_MSG_FILES, taskFiles.toString());
         if (taskTopics.length() > 0)
           taskConfig.put(SoapSourceTaskConfig.TOPIC,  taskTopics.toString());
+        if (directory) {
+          // a listed file is called by the task it is assigned to, whichever share of the directory it falls in
+          taskConfig.put(SoapSourceTaskConfig.REQUEST_DIRECTORY_EXCLUDED, String.join(", ", files));
+          taskConfig.put(SoapSourceTaskConfig.REQUEST_DIRECTORY_SHARD, String.valueOf(i));
+          taskConfig.put(SoapSourceTaskConfig.REQUEST_DIRECTORY_SHARDS, String.valueOf(tasks));
+        }
 
         taskConfigs.add(taskConfig);
       }
+      this.files = files;
+      this.assignment = balanced;
     } else {
       throw new ConfigException("No request file provided.");
     }
     return taskConfigs;
   }
 
+  /**
+   * Cost per second of every request: how often it is called times how long a call keeps its task busy. The time is
+   * the one measured by a task running the request in this worker; requests running elsewhere or not yet measured
+   * take the average measured time scaled by their configured weight.
+   */
+  double[] estimateCosts(String[] files) {
+    double[] measured = new double[files.length];
+    double measuredTotal = 0;
+    int measuredCount = 0;
+    for (int i = 0; i < files.length; i++) {
+      String requestType = files[i].substring(0, files[i].lastIndexOf('.') < 0 ? files[i].length()
+          : files[i].lastIndexOf('.'));
+      RequestMetrics metrics = SoapMetrics.running(settings.get(CONNECTOR_NAME), requestType);
+      measured[i] = metrics == null ? Double.NaN : metrics.busyMillisPerCall();
+      if (!Double.isNaN(measured[i])) {
+        measuredTotal += measured[i];
+        measuredCount++;
+      }
+    }
+    double unmeasured = measuredCount == 0 ? 1.0 : measuredTotal / measuredCount;
+    double[] costs = new double[files.length];
+    for (int i = 0; i < files.length; i++) {
+      Map<String, Object> overrides = config.originalsWithPrefix(
+          SoapSourceConnectorConfig.REQUEST_OVERRIDE_PREFIX + new File(files[i]).getName() + ".");
+      double callsPerSecond = 1000.0 / Math.max(1L, requestLong(overrides, SoapClientConfig.POLL_INTERVAL,
+          config.getLong(SoapSourceConnectorConfig.POLL_INTERVAL)));
+      double perCall = !Double.isNaN(measured[i]) ? measured[i]
+          : unmeasured * requestDouble(overrides, SoapClientConfig.REQUEST_WEIGHT,
+          config.getDouble(SoapSourceConnectorConfig.REQUEST_WEIGHT));
+      costs[i] = callsPerSecond * perCall;
+    }
+    return costs;
+  }
+
+  /**
+   * Asks the worker to reassign the requests when the busiest task is loaded well beyond what the current costs allow.
+   */
+  void checkBalance() {
+    String[] assigned = files;
+    List<List<Integer>> current = assignment;
+    if (assigned == null || current == null || current.size() < 2) {
+      return;
+    }
+    try {
+      double[] costs = estimateCosts(assigned);
+      double busiest = TaskAssignment.maxLoad(current, costs);
+      double best = TaskAssignment.maxLoad(TaskAssignment.balance(costs, current.size()), costs);
+      if (busiest > best * (1 + config.getDouble(SoapSourceConnectorConfig.REBALANCE_THRESHOLD))) {
+        log.info("Busiest task load {} exceeds the reachable {}, requesting task reconfiguration", busiest, best);
+        context.requestTaskReconfiguration();
+      }
+    } catch (RuntimeException e) {
+      log.warn("Task balance not checked", e);
+    }
+  }
+
+  private static long requestLong(Map<String, Object> overrides, String key, long defaultValue) {
+    Object value = overrides.get(key);
+    return value == null ? defaultValue : Long.parseLong(value.toString().trim());
+  }
+
+  private static double requestDouble(Map<String, Object> overrides, String key, double defaultValue) {
+    Object value = overrides.get(key);
+    return value == null ? defaultValue : Double.parseDouble(value.toString().trim());
+  }
+
   @Override
   public void stop() {
-
+    if (balanceMonitor != null) {
+      balanceMonitor.shutdownNow();
+    }
     log.info("Stopping SOAP SourceConnector");
   }
 
@@ -17,33 +17,44 @@ package com.github.ogomezso.kafka.connect.soap.source;
 import com.github.jcustenborder.kafka.connect.utils.VersionUtil;
 import com.github.ogomezso.kafka.connect.soap.client.SoapClient;
 import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
+import com.github.ogomezso.kafka.connect.soap.metrics.SoapMetrics;
 import com.github.ogomezso.kafka.connect.soap.model.RecordKey;
 import com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapper;
-import jakarta.xml.soap.SOAPException;
-import jakarta.xml.soap.SOAPMessage;
+import com.github.ogomezso.kafka.connect.soap.scheduler.HashedWheelScheduler;
+import com.github.ogomezso.kafka.connect.soap.scheduler.SharedExecutor;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 
-import javax.xml.transform.TransformerException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeoutException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 
 @Slf4j
 @NoArgsConstructor
 public class SoapSourceTask extends SourceTask {
 
+  private static final int SCHEDULER_WHEEL_SIZE = 512;
+  private static final long MAX_POLL_WAIT_MS = 1000L;
+  private static final String CONNECTOR_NAME = "name";
+
   private final SourceRecordMapper mapper = new SourceRecordMapper();
   private final List<String> validAssignmentModes = Arrays.asList(
       "",
@@ -61,6 +72,18 @@ public class SoapSourceTask extends SourceTask {
   private String serviceName;
   private String topicAssignmentStrategy;
   private List<SoapClientConfig> requests = new ArrayList<>();
+  private List<SoapRequestPoller> pollers = new ArrayList<>();
+  private BlockingQueue<PolledRecord> completionQueue;
+  private final ArrayDeque<PolledRecord> pending = new ArrayDeque<>();
+  private int maxBatchRecords;
+  private long maxBatchBytes;
+  private long batchLinger;
+  private HashedWheelScheduler scheduler;
+  private SharedExecutor executor;
+  private SoapMetrics metrics;
+  private RequestDirectoryWatcher directoryWatcher;
+  private final Map<Path, SoapRequestPoller> directoryPollers = new ConcurrentHashMap<>();
+  private final Set<Path> listedFiles = new HashSet<>();
 
 
   public SoapSourceTask(SoapClient client, Long pollInterval, String topic, String serviceName,
@@ -90,14 +113,95 @@ public class SoapSourceTask extends SourceTask {
   public void start(Map<String, String> map) {
     this.config = new SoapSourceTaskConfig(SoapSourceTaskConfig.config(), map);
     validateAndsSetConfigVars(config);
+    completionQueue = new ArrayBlockingQueue<>(config.getInt(SoapSourceTaskConfig.COMPLETION_QUEUE_CAPACITY));
+    maxBatchRecords = config.getInt(SoapSourceTaskConfig.MAX_BATCH_RECORDS);
+    maxBatchBytes = config.getLong(SoapSourceTaskConfig.MAX_BATCH_BYTES);
+    batchLinger = config.getLong(SoapSourceTaskConfig.BATCH_LINGER);
+    scheduler = new HashedWheelScheduler(config.getLong(SoapSourceTaskConfig.SCHEDULER_TICK_DURATION),
+        TimeUnit.MILLISECONDS, SCHEDULER_WHEEL_SIZE);
+    int threads = config.getInt(SoapSourceTaskConfig.EXECUTOR_THREADS);
+    executor = new SharedExecutor(threads > 0 ? threads : SharedExecutor.defaultThreads(),
+        config.getInt(SoapSourceTaskConfig.IO_THREADS));
+    metrics = new SoapMetrics(map.get(CONNECTOR_NAME), config.getInt(SoapSourceTaskConfig.TASK_INDEX));
 
     for (SoapClientConfig r : requests) {
-      SoapClient cl = new SoapClient();
-      cl.start(r);
-      clients.add(cl);
+      SoapRequestPoller poller = startRequest(r);
+      clients.add(poller.getClient());
+      pollers.add(poller);
+    }
+
+    String directory = config.getString(SoapSourceTaskConfig.REQUEST_MSG_DIRECTORY).trim();
+    if (!directory.isEmpty()) {
+      requests.forEach(r -> listedFiles.add(Paths.get(r.getString(SoapClientConfig.REQUEST_MSG_FILE)).normalize()));
+      Arrays.stream(config.getString(SoapSourceTaskConfig.REQUEST_DIRECTORY_EXCLUDED).split(","))
+          .map(String::trim)
+          .filter(f -> !f.isEmpty())
+          .forEach(f -> listedFiles.add(Paths.get(f).normalize()));
+      directoryWatcher = new RequestDirectoryWatcher(Paths.get(directory),
+          config.getString(SoapSourceTaskConfig.REQUEST_MSG_GLOB),
+          config.getInt(SoapSourceTaskConfig.REQUEST_DIRECTORY_SHARD),
+          config.getInt(SoapSourceTaskConfig.REQUEST_DIRECTORY_SHARDS),
+          new RequestDirectoryWatcher.Listener() {
+            @Override
+            public void added(Path file) {
+              addDirectoryRequest(file);
+            }
+
+            @Override
+            public void removed(Path file) {
+              removeDirectoryRequest(file);
+            }
+          });
+      try {
+        directoryWatcher.start();
+      } catch (IOException e) {
+        throw new ConfigException(SoapSourceTaskConfig.REQUEST_MSG_DIRECTORY, directory,
+            "Not watchable: " + e.getMessage());
+      }
+    }
+  }
+
+  private SoapRequestPoller startRequest(SoapClientConfig r) {
+    RecordKey recordKey = createRecordKey(r);
+    SoapClient cl = new SoapClient(executor, metrics.request(recordKey.getRequestType(),
+        r.getLong(SoapClientConfig.CONNECTION_TIMEOUT) + r.getLong(SoapClientConfig.REQUEST_TIMEOUT)));
+    cl.start(r);
+    SoapRequestPoller poller = new SoapRequestPoller(cl, mapper, recordKey,
+        r.getString(SoapClientConfig.TOPIC_PREFIX) + r.getString(SoapClientConfig.TOPIC), // TODO remove topic from ClientConfig
+        completionQueue);
+    if (poller.tracksOffset()) {
+      poller.restore(context.offsetStorageReader().offset(SourceRecordMapper.sourcePartition(poller.getRecordKey())));
+    }
+    poller.start(scheduler);
+    return poller;
+  }
+
+  /**
+   * Starts a request file found in the request directory; its client is only created now, not when the task starts.
+   * A file also listed in {@code requestMessageFiles} is left to the task it is assigned to, this one or another.
+   */
+  private void addDirectoryRequest(Path file) {
+    if (listedFiles.contains(file.normalize())) {
+      log.debug("Request file {} is already listed in {}", file, SoapSourceTaskConfig.REQUEST_MSG_FILES);
+      return;
+    }
+    SoapClientConfig r = requestConfig(config, file.toString(), topicFor(file.toString(), 0));
+    directoryPollers.put(file, startRequest(r));
+  }
+
+  private void removeDirectoryRequest(Path file) {
+    SoapRequestPoller poller = directoryPollers.remove(file);
+    if (poller != null) {
+      poller.stop();
+      poller.getClient().stop();
+      metrics.remove(poller.getRecordKey().getRequestType());
     }
   }
 
+  int directoryRequests() {
+    return directoryPollers.size();
+  }
+
   List<SoapClientConfig> test_validateAndsSetConfigVars(Map<String, String> map) {
     this.config = new SoapSourceTaskConfig(SoapSourceTaskConfig.config(), map);
     validateAndsSetConfigVars(config);
@@ -105,6 +209,10 @@ public class SoapSourceTask extends SourceTask {
     return this.requests;
   }
 
+  BlockingQueue<PolledRecord> test_completionQueue() {
+    return completionQueue;
+  }
+
   private void validateAndsSetConfigVars(SoapSourceTaskConfig config) {
 
     // validation of parameters with values that are set equally to all clients
@@ -119,14 +227,20 @@ public class SoapSourceTask extends SourceTask {
     topicPrefix = this.config.getString(SoapSourceTaskConfig.TOPIC_PREFIX);
     topicAssignmentStrategy = this.config.getString(SoapSourceTaskConfig.REQUEST_TOPIC_ASSIGNMENT);
 
-    files = this.config.getString(SoapSourceTaskConfig.REQUEST_MSG_FILES).split(",");
+    files = Arrays.stream(this.config.getString(SoapSourceTaskConfig.REQUEST_MSG_FILES).split(","))
+        .map(String::trim)
+        .filter(f -> !f.isEmpty())
+        .toArray(String[]::new);
     topics = this.config.getString(SoapSourceTaskConfig.TOPIC).split(",");
 
-    Arrays.setAll(files, i -> files[i].trim());
     Arrays.setAll(topics, i -> topics[i].trim());
 
     switch (topicAssignmentStrategy) {
       case "CUSTOM_ASSIGNMENT":
+        if (!this.config.getString(SoapSourceTaskConfig.REQUEST_MSG_DIRECTORY).trim().isEmpty()) {
+          throw new ConfigException("Custom request->topic assignment impossible for the files of " +
+                                        SoapSourceTaskConfig.REQUEST_MSG_DIRECTORY);
+        }
         if (files.length != topics.length) {
           throw new ConfigException("Custom request->topic assignment impossible due to an incompatible combination" +
                                         " of config parameters");
@@ -144,62 +258,82 @@ public class SoapSourceTask extends SourceTask {
     // client-specific configurations
 
     for (int i = 0; i < files.length; i++) {
-      Map<String, String> clientConf = config.originalsStrings();
-
-      clientConf.put(SoapClientConfig.POLL_INTERVAL, pollInterval.toString());
-      clientConf.put(SoapClientConfig.CONNECTION_TIMEOUT, connectionTimeout.toString());
-      clientConf.put(SoapClientConfig.SERVICE_NAME, serviceName);
-      clientConf.put(SoapClientConfig.REQUEST_MSG_FILE, files[i]);
-
-      switch (topicAssignmentStrategy) {
-        case "ONE_TOPIC": // all clients write into one topic called topic_prefix+topic
-          clientConf.put(SoapClientConfig.TOPIC,
-                  topics[0]
-          );
-          break;
+      requests.add(requestConfig(config, files[i], topicFor(files[i], i)));
+    } // end for - client specific-configurations
+  }
 
-        case "TOPIC_PER_REQUEST": // clients write into their topic called topic_prefix+topic+filename
-          clientConf.put(SoapClientConfig.TOPIC,
-                  topics[0]
-                  + new File(files[i]).getName()
-          );
-          break;
+  private String topicFor(String file, int position) {
+    switch (topicAssignmentStrategy) {
+      case "ONE_TOPIC": // all clients write into one topic called topic_prefix+topic
+        return topics[0];
 
-        case "CUSTOM_ASSIGNMENT": // clients write into their topic called topic_prefix+topic[position]
-          clientConf.put(SoapClientConfig.TOPIC,
-                  topics[i]
-          );
-          break;
+      case "TOPIC_PER_REQUEST": // clients write into their topic called topic_prefix+topic+filename
+        return topics[0] + new File(file).getName();
 
-        default:
-          throw new ConfigException("Unknown topic-assignment strategy");
-      } // end switch - topic assignment strategies
-      requests.add(new SoapClientConfig(clientConf));
-    } // end for - client specific-configurations
+      case "CUSTOM_ASSIGNMENT": // clients write into their topic called topic_prefix+topic[position]
+        return topics[position];
+
+      default:
+        throw new ConfigException("Unknown topic-assignment strategy");
+    } // end switch - topic assignment strategies
+  }
+
+  private SoapClientConfig requestConfig(SoapSourceTaskConfig config, String file, String topic) {
+    Map<String, String> clientConf = config.originalsStrings();
+
+    clientConf.put(SoapClientConfig.POLL_INTERVAL, pollInterval.toString());
+    clientConf.put(SoapClientConfig.CONNECTION_TIMEOUT, connectionTimeout.toString());
+    clientConf.put(SoapClientConfig.SERVICE_NAME, serviceName);
+    clientConf.put(SoapClientConfig.REQUEST_MSG_FILE, file);
+    clientConf.put(SoapClientConfig.TOPIC, topic);
+
+    // per request overrides: request.<file name>.<setting>
+    String requestName = new File(file).getName();
+    config.originalsWithPrefix(SoapSourceTaskConfig.REQUEST_OVERRIDE_PREFIX + requestName + ".")
+        .forEach((k, v) -> clientConf.put(k, String.valueOf(v)));
+
+    SoapClientConfig clientConfig = new SoapClientConfig(clientConf);
+    Optional.of(clientConfig.getLong(SoapClientConfig.POLL_INTERVAL))
+        .filter(p -> p > 0)
+        .orElseThrow(() -> new ConfigException("Poll interval of " + requestName + " must be greater than 0"));
+    return clientConfig;
   }
 
+  /**
+   * Hands Connect a batch of at most {@code maxBatchRecords} records and {@code maxBatchBytes} bytes. Without records
+   * it blocks a while for the first one instead of returning at once; with one, it keeps collecting for up to
+   * {@code batchLinger} ms unless the batch fills up first. Records that do not fit wait for the next call.
+   */
   @Override
-  public List<SourceRecord> poll() {
-    // This currently blocks for each client
-    // TODO rewrite poll() with an event queue, and allow quotas per client via individual pollInterval
+  public List<SourceRecord> poll() throws InterruptedException {
+    // Every request fetches and maps on its own schedule; here we only drain whatever is already completed
 
     ArrayList<SourceRecord> records = new ArrayList<>();
-
-    for (SoapClient client : clients) {
-      try {
-        SOAPMessage clientResponse = client.poll(pollInterval);
-        records.add(mapper.getSourceRecordFromSoapMessage(
-                createRecordKey(client.getConfig()),
-                clientResponse,
-            client.getConfig().getString(SoapClientConfig.TOPIC_PREFIX) + client.getConfig().getString(SoapClientConfig.TOPIC) // TODO remove topic from ClientConfig
-            )
-        );
-      } catch (ExecutionException | InterruptedException | TimeoutException | SOAPException e) {
-        log.error("Error getting response from SOAP Client", e);
-      } catch (TransformerException | IOException e) {
-        log.error("Error processing the Source Record", e);
+    long batchBytes = 0;
+    long lingerDeadline = 0;
+    while (records.size() < maxBatchRecords) {
+      if (pending.isEmpty() && completionQueue.drainTo(pending, maxBatchRecords - records.size()) == 0) {
+        long wait = records.isEmpty() ? TimeUnit.MILLISECONDS.toNanos(Math.min(pollInterval, MAX_POLL_WAIT_MS))
+            : lingerDeadline - System.nanoTime();
+        PolledRecord next = wait > 0 ? completionQueue.poll(wait, TimeUnit.NANOSECONDS) : null;
+        if (next == null) {
+          break;
+        }
+        pending.add(next);
+      }
+      PolledRecord next = pending.peek();
+      if (maxBatchBytes > 0 && !records.isEmpty() && batchBytes + next.getSize() > maxBatchBytes) {
+        break;
+      }
+      pending.poll();
+      next.getPoller().release();
+      records.add(next.getRecord());
+      batchBytes += next.getSize();
+      if (records.size() == 1) {
+        lingerDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchLinger);
       }
     }
+    log.debug("Returning {} records ({} bytes), {}", records.size(), batchBytes, executor);
     return records;
   }
 
@@ -215,8 +349,29 @@ public class SoapSourceTask extends SourceTask {
 
   @Override
   public void stop() {
+    if (directoryWatcher != null) {
+      try {
+        directoryWatcher.close();
+      } catch (IOException e) {
+        log.warn("Request directory watcher not closed", e);
+      }
+    }
+    directoryPollers.keySet().forEach(this::removeDirectoryRequest);
+    for (SoapRequestPoller p : pollers) {
+      p.stop();
+    }
+    if (scheduler != null) {
+      scheduler.stop();
+    }
     for (SoapClient c : clients) {
       c.stop();
     }
+    if (executor != null) {
+      log.info("Stopping {}", executor);
+      executor.shutdownNow();
+    }
+    if (metrics != null) {
+      metrics.close();
+    }
   }
 }
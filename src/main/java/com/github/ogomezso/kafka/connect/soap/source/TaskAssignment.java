@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads requests over tasks by cost, longest processing time first; ties are dealt round-robin.
+ */
+final class TaskAssignment {
+
+  private TaskAssignment() {
+  }
+
+  static List<List<Integer>> balance(double[] costs, int tasks) {
+    List<List<Integer>> assignment = new ArrayList<>();
+    double[] loads = new double[tasks];
+    for (int t = 0; t < tasks; t++) {
+      assignment.add(new ArrayList<>());
+    }
+    PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(Comparator.<Integer>comparingDouble(t -> loads[t])
+        .thenComparingInt(t -> assignment.get(t).size())
+        .thenComparingInt(t -> t));
+    for (int t = 0; t < tasks; t++) {
+      leastLoaded.add(t);
+    }
+    List<Integer> byCost = IntStream.range(0, costs.length).boxed()
+        .sorted(Comparator.<Integer>comparingDouble(i -> costs[i]).reversed().thenComparingInt(i -> i))
+        .collect(Collectors.toList());
+    for (int request : byCost) {
+      int task = leastLoaded.poll();
+      assignment.get(task).add(request);
+      loads[task] += costs[request];
+      leastLoaded.add(task);
+    }
+    assignment.forEach(Collections::sort);
+    return assignment;
+  }
+
+  static double maxLoad(List<List<Integer>> assignment, double[] costs) {
+    double max = 0;
+    for (List<Integer> task : assignment) {
+      double load = 0;
+      for (int request : task) {
+        load += costs[request];
+      }
+      max = Math.max(max, load);
+    }
+    return max;
+  }
+}
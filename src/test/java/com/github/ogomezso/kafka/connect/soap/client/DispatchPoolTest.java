@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import jakarta.xml.soap.SOAPMessage;
+import jakarta.xml.ws.Dispatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class DispatchPoolTest {
+
+  private final AtomicInteger creations = new AtomicInteger();
+
+  @SuppressWarnings("unchecked")
+  private Dispatch<SOAPMessage> countingFactory() {
+    creations.incrementAndGet();
+    return mock(Dispatch.class);
+  }
+
+  @Test
+  public void given_sequential_borrows_when_released_then_single_instance_reused() throws Exception {
+    DispatchPool classToTest = new DispatchPool(this::countingFactory, 4);
+
+    for (int i = 0; i < 1000; i++) {
+      classToTest.release(classToTest.borrow());
+    }
+
+    assertEquals(1, creations.get());
+  }
+
+  @Test
+  public void given_concurrent_borrows_when_pool_bounded_then_creations_never_exceed_max_size() throws Exception {
+    DispatchPool classToTest = new DispatchPool(this::countingFactory, 2);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int t = 0; t < 8; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 200; i++) {
+          Dispatch<SOAPMessage> dispatch = classToTest.borrow();
+          classToTest.release(dispatch);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+
+    assertTrue(creations.get() <= 2);
+    assertEquals(creations.get(), classToTest.created());
+  }
+}
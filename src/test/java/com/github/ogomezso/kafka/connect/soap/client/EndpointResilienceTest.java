@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EndpointResilienceTest {
+
+  @Mock(lenient = true)
+  SoapClientConfig mockConfig;
+
+  @Test
+  public void given_same_endpoint_when_looked_up_then_guards_are_shared() {
+    when(mockConfig.getInt(SoapClientConfig.ENDPOINT_RATE_LIMIT)).thenReturn(10);
+    EndpointResilience first = EndpointResilience.forEndpoint("http://localhost/resilience/shared", mockConfig);
+    when(mockConfig.getInt(SoapClientConfig.ENDPOINT_RATE_LIMIT)).thenReturn(20);
+    EndpointResilience second = EndpointResilience.forEndpoint("http://localhost/resilience/shared", mockConfig);
+
+    assertSame(first, second);
+    assertEquals(10, second.getRateLimiter().getRateLimiterConfig().getLimitForPeriod());
+  }
+
+  @Test
+  public void given_every_client_closed_when_looked_up_again_then_new_settings_apply() {
+    when(mockConfig.getInt(SoapClientConfig.ENDPOINT_RATE_LIMIT)).thenReturn(10);
+    EndpointResilience first = EndpointResilience.forEndpoint("http://localhost/resilience/reconfigured", mockConfig);
+    EndpointResilience second = EndpointResilience.forEndpoint("http://localhost/resilience/reconfigured", mockConfig);
+    first.close();
+    when(mockConfig.getInt(SoapClientConfig.ENDPOINT_RATE_LIMIT)).thenReturn(20);
+
+    assertSame(second, EndpointResilience.forEndpoint("http://localhost/resilience/reconfigured", mockConfig));
+    second.close();
+    second.close();
+    EndpointResilience reconfigured = EndpointResilience.forEndpoint("http://localhost/resilience/reconfigured",
+        mockConfig);
+
+    assertNotSame(first, reconfigured);
+    assertEquals(20, reconfigured.getRateLimiter().getRateLimiterConfig().getLimitForPeriod());
+  }
+
+  @Test
+  public void given_no_limits_when_created_then_only_circuit_breaker_guards_endpoint() throws Exception {
+    EndpointResilience classToTest = EndpointResilience.forEndpoint("http://localhost/resilience/defaults",
+        mockConfig);
+
+    assertNull(classToTest.getRateLimiter());
+    assertNull(classToTest.getBulkhead());
+    assertEquals(10f, classToTest.getCircuitBreaker().getCircuitBreakerConfig().getFailureRateThreshold());
+    assertEquals("ok", classToTest.execute(() -> "ok"));
+  }
+
+  @Test
+  public void given_rate_limit_reached_when_executed_then_call_not_permitted() throws Exception {
+    when(mockConfig.getInt(SoapClientConfig.ENDPOINT_RATE_LIMIT)).thenReturn(2);
+    when(mockConfig.getLong(SoapClientConfig.ENDPOINT_PERMIT_TIMEOUT)).thenReturn(0L);
+    EndpointResilience classToTest = EndpointResilience.forEndpoint("http://localhost/resilience/rate",
+        mockConfig);
+
+    classToTest.execute(() -> "first");
+    classToTest.execute(() -> "second");
+
+    assertThrows(RequestNotPermitted.class, () -> classToTest.execute(() -> "third"));
+    assertEquals(CircuitBreaker.State.CLOSED, classToTest.getCircuitBreaker().getState());
+  }
+
+  @Test
+  public void given_concurrency_limit_reached_when_executed_async_then_bulkhead_full() {
+    when(mockConfig.getInt(SoapClientConfig.ENDPOINT_MAX_CONCURRENT_CALLS)).thenReturn(1);
+    when(mockConfig.getLong(SoapClientConfig.ENDPOINT_PERMIT_TIMEOUT)).thenReturn(0L);
+    EndpointResilience classToTest = EndpointResilience.forEndpoint("http://localhost/resilience/bulkhead",
+        mockConfig);
+    CompletableFuture<String> pending = new CompletableFuture<>();
+
+    classToTest.executeCompletionStage(() -> pending);
+    CompletableFuture<String> rejected = classToTest.executeCompletionStage(
+        () -> CompletableFuture.completedFuture("rejected")).toCompletableFuture();
+
+    CompletionException e = assertThrows(CompletionException.class, rejected::join);
+    assertTrue(e.getCause() instanceof BulkheadFullException);
+
+    pending.complete("done");
+    assertEquals("accepted", classToTest.executeCompletionStage(
+        () -> CompletableFuture.completedFuture("accepted")).toCompletableFuture().join());
+  }
+
+  @Test
+  public void given_configured_threshold_when_calls_fail_then_circuit_opens() {
+    when(mockConfig.getDouble(SoapClientConfig.CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD)).thenReturn(50.0);
+    when(mockConfig.getInt(SoapClientConfig.CIRCUIT_BREAKER_MINIMUM_CALLS)).thenReturn(2);
+    when(mockConfig.getInt(SoapClientConfig.CIRCUIT_BREAKER_SLIDING_WINDOW)).thenReturn(60);
+    EndpointResilience classToTest = EndpointResilience.forEndpoint("http://localhost/resilience/breaker",
+        mockConfig);
+
+    for (int i = 0; i < 2; i++) {
+      assertThrows(IllegalStateException.class, () -> classToTest.execute(() -> {
+        throw new IllegalStateException("down");
+      }));
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, classToTest.getCircuitBreaker().getState());
+    assertThrows(CallNotPermittedException.class, () -> classToTest.execute(() -> "ok"));
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import com.sun.net.httpserver.HttpServer;
+import jakarta.xml.soap.SOAPException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpSoapTransportTest {
+
+  private static final String RESPONSE = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+      + "<soapenv:Body><pong/></soapenv:Body></soapenv:Envelope>";
+  private static final String FAULT = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+      + "<soapenv:Body><soapenv:Fault><faultcode>soapenv:Server</faultcode><faultstring>boom</faultstring>"
+      + "</soapenv:Fault></soapenv:Body></soapenv:Envelope>";
+
+  private final AtomicReference<String> receivedAction = new AtomicReference<>();
+  private final AtomicReference<String> receivedBody = new AtomicReference<>();
+  private final AtomicReference<String> receivedEncoding = new AtomicReference<>();
+  private HttpServer server;
+  private volatile int status = 200;
+  private volatile String response = RESPONSE;
+  private volatile String responseEncoding;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/ws", exchange -> {
+      receivedAction.set(exchange.getRequestHeaders().getFirst("SOAPAction"));
+      receivedEncoding.set(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+      receivedBody.set(readAll(HttpSoapTransport.decoding(exchange.getRequestBody(),
+          exchange.getRequestHeaders().getFirst("Content-Encoding"))));
+      byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+      String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      if (responseEncoding != null && accepted != null && accepted.contains(responseEncoding)) {
+        bytes = compress(bytes, responseEncoding);
+        exchange.getResponseHeaders().add("Content-Encoding", responseEncoding);
+      }
+      exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void given_envelope_when_posted_then_server_gets_it_with_soap_action() throws Exception {
+    HttpSoapTransport classToTest = new HttpSoapTransport(endpoint(), "urn:ping", 1000, 1000);
+
+    try (InputStream in = classToTest.post("<ping/>".getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(RESPONSE, readAll(in));
+    }
+
+    assertEquals("\"urn:ping\"", receivedAction.get());
+    assertEquals("<ping/>", receivedBody.get());
+  }
+
+  @Test
+  public void given_partially_read_responses_when_posted_again_then_every_call_succeeds() throws Exception {
+    HttpSoapTransport classToTest = new HttpSoapTransport(endpoint(), "urn:ping", 1000, 1000);
+
+    for (int i = 0; i < 20; i++) {
+      try (InputStream in = classToTest.post("<ping/>".getBytes(StandardCharsets.UTF_8))) {
+        assertTrue(in.read() != -1);
+      }
+    }
+  }
+
+  @Test
+  public void given_fault_response_when_posted_then_soap_exception_with_fault_string() throws Exception {
+    status = 500;
+    response = FAULT;
+    HttpSoapTransport classToTest = new HttpSoapTransport(endpoint(), "urn:ping", 1000, 1000);
+
+    SOAPException actual = assertThrows(SOAPException.class,
+        () -> classToTest.post("<ping/>".getBytes(StandardCharsets.UTF_8)));
+
+    assertTrue(actual.getMessage().endsWith(": boom"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"gzip", "deflate"})
+  public void given_compressed_response_when_accepted_then_inflated_while_read(String encoding) throws Exception {
+    responseEncoding = encoding;
+    HttpSoapTransport classToTest = new HttpSoapTransport(endpoint(), "urn:ping", 1000, 1000, true, null, 0);
+
+    try (InputStream in = classToTest.post("<ping/>".getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(RESPONSE, readAll(in));
+    }
+  }
+
+  @Test
+  public void given_compressed_response_when_not_accepted_then_server_sends_it_plain() throws Exception {
+    responseEncoding = "gzip";
+    HttpSoapTransport classToTest = new HttpSoapTransport(endpoint(), "urn:ping", 1000, 1000);
+
+    try (InputStream in = classToTest.post("<ping/>".getBytes(StandardCharsets.UTF_8))) {
+      assertEquals(RESPONSE, readAll(in));
+    }
+  }
+
+  @Test
+  public void given_raw_deflate_body_when_decoded_then_inflated() throws Exception {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    try (OutputStream out = new DeflaterOutputStream(raw, deflater)) {
+      out.write(RESPONSE.getBytes(StandardCharsets.UTF_8));
+    }
+    deflater.end();
+
+    InputStream in = HttpSoapTransport.decoding(new ByteArrayInputStream(raw.toByteArray()), "deflate");
+
+    assertEquals(RESPONSE, readAll(in));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"gzip", "deflate"})
+  public void given_request_above_threshold_when_posted_then_body_is_compressed(String encoding) throws Exception {
+    HttpSoapTransport classToTest = new HttpSoapTransport(endpoint(), "urn:ping", 1000, 1000, false, encoding, 16);
+    String small = "<ping/>";
+    String large = "<ping>" + String.join("", Collections.nCopies(100, "<payload>abc</payload>")) + "</ping>";
+
+    classToTest.post(small.getBytes(StandardCharsets.UTF_8)).close();
+    assertNull(receivedEncoding.get());
+    assertEquals(small, receivedBody.get());
+
+    classToTest.post(large.getBytes(StandardCharsets.UTF_8)).close();
+    assertEquals(encoding, receivedEncoding.get());
+    assertEquals(large, receivedBody.get());
+  }
+
+  private static byte[] compress(byte[] bytes, String encoding) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(compressed)
+        : new DeflaterOutputStream(compressed)) {
+      out.write(bytes);
+    }
+    return compressed.toByteArray();
+  }
+
+  private URL endpoint() throws IOException {
+    return new URL("http://localhost:" + server.getAddress().getPort() + "/ws");
+  }
+
+  private static String readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightLimiterTest {
+
+  @Test
+  public void given_limit_reached_when_acquired_then_rejected_until_released() {
+    InFlightLimiter classToTest = new InFlightLimiter("http://localhost/ws", 2);
+
+    assertTrue(classToTest.tryAcquire());
+    assertTrue(classToTest.tryAcquire());
+    assertFalse(classToTest.tryAcquire());
+
+    classToTest.release();
+    assertTrue(classToTest.tryAcquire());
+    assertEquals(2, classToTest.inFlight());
+  }
+
+  @Test
+  public void given_same_endpoint_when_looked_up_then_limit_is_shared() {
+    InFlightLimiter first = InFlightLimiter.forEndpoint("http://localhost/shared", 3);
+    InFlightLimiter second = InFlightLimiter.forEndpoint("http://localhost/shared", 5);
+
+    assertSame(first, second);
+    assertEquals(3, second.maxInFlight());
+  }
+
+  @Test
+  public void given_every_client_closed_when_looked_up_again_then_new_limit_applies() {
+    InFlightLimiter first = InFlightLimiter.forEndpoint("http://localhost/reconfigured", 3);
+    InFlightLimiter.forEndpoint("http://localhost/reconfigured", 3);
+    first.close();
+    assertSame(first, InFlightLimiter.forEndpoint("http://localhost/reconfigured", 5));
+    first.close();
+    first.close();
+
+    InFlightLimiter reconfigured = InFlightLimiter.forEndpoint("http://localhost/reconfigured", 5);
+
+    assertNotSame(first, reconfigured);
+    assertEquals(5, reconfigured.maxInFlight());
+  }
+
+  @Test
+  public void given_concurrent_callers_when_acquiring_then_in_flight_never_exceeds_limit() throws Exception {
+    InFlightLimiter classToTest = new InFlightLimiter("http://localhost/ws", 4);
+    AtomicInteger highest = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int t = 0; t < 8; t++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < 10000; i++) {
+          if (classToTest.tryAcquire()) {
+            highest.accumulateAndGet(classToTest.inFlight(), Math::max);
+            classToTest.release();
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+
+    assertTrue(highest.get() <= 4);
+    assertEquals(0, classToTest.inFlight());
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestTemplateTest {
+
+  private static final byte[] FIRST = "<first/>".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SECOND = "<second/>".getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void given_unchanged_file_when_read_many_times_then_loaded_once() throws Exception {
+    Path file = Files.write(tempDir.resolve("request.xml"), FIRST);
+    RequestTemplate classToTest = new RequestTemplate(file.toFile());
+
+    classToTest.load();
+    for (int i = 0; i < 100; i++) {
+      assertArrayEquals(FIRST, classToTest.bytes());
+    }
+
+    assertEquals(1, classToTest.loads());
+  }
+
+  @Test
+  public void given_modified_file_when_read_then_reloaded() throws Exception {
+    Path file = Files.write(tempDir.resolve("request.xml"), FIRST);
+    RequestTemplate classToTest = new RequestTemplate(file.toFile());
+    classToTest.load();
+
+    Files.write(file, SECOND);
+    file.toFile().setLastModified(file.toFile().lastModified() + 2000L);
+
+    assertArrayEquals(SECOND, classToTest.bytes());
+    assertEquals(2, classToTest.loads());
+  }
+
+  @Test
+  public void given_placeholder_when_opened_with_variables_then_escaped_value_is_substituted() throws Exception {
+    Path file = Files.write(tempDir.resolve("request.xml"),
+        "<since>${watermark}</since>".getBytes(StandardCharsets.UTF_8));
+    RequestTemplate classToTest = new RequestTemplate(file.toFile());
+
+    String actual = readAll(classToTest.openStream(Collections.singletonMap("watermark", "a<b&c")));
+
+    assertEquals("<since>a&lt;b&amp;c</since>", actual);
+    assertEquals("<since>${watermark}</since>", readAll(classToTest.openStream(Collections.emptyMap())));
+  }
+
+  private static String readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[256];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void given_missing_file_when_loaded_then_no_exception_until_used() {
+    RequestTemplate classToTest = new RequestTemplate(tempDir.resolve("missing.xml").toFile());
+
+    assertDoesNotThrow(classToTest::load);
+    assertThrows(FileNotFoundException.class, classToTest::bytes);
+  }
+}
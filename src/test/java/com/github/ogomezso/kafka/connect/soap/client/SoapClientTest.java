@@ -15,17 +15,29 @@
 package com.github.ogomezso.kafka.connect.soap.client;
 
 import jakarta.xml.soap.SOAPMessage;
+import jakarta.xml.ws.Dispatch;
 import org.apache.kafka.common.config.ConfigException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.concurrent.Callable;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,16 +51,20 @@ class SoapClientTest {
   private static final String REQUEST_FILE = "/homer/fakeuser/request.xml";
   private static final String KO_REQUEST_FILE = "request.xml";
   private static final Long CONNECTION_TIMEOUT = 5L;
+  private static final String REQUEST_ENVELOPE =
+      "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+          + "<soapenv:Header/><soapenv:Body><getCountryRequest><name>Spain</name></getCountryRequest></soapenv:Body>"
+          + "</soapenv:Envelope>";
 
-  @InjectMocks
-  private final SoapClient stubbedClassToTest = new SoapClient();
   private final SoapClient classToTest = new SoapClient();
   @Mock
   private SoapClientConfig mockConfig;
   @Mock
-  private Callable<SOAPMessage> mockTask;
-  @Mock
   private SOAPMessage mockReturnMessage;
+  @Mock
+  private Dispatch<SOAPMessage> mockDispatch;
+  @TempDir
+  Path tempDir;
 
   @Test
   public void given_not_null_config_client_starts() {
@@ -63,6 +79,7 @@ class SoapClientTest {
         .thenReturn(CONNECTION_TIMEOUT);
 
     assertDoesNotThrow(() -> classToTest.start(mockConfig));
+    classToTest.stop();
   }
 
   @Test
@@ -80,10 +97,44 @@ class SoapClientTest {
   }
 
   @Test
-  public void given_ok_poll_interval__when_poll_then_future_complete_ok() throws Exception {
+  public void given_started_client_when_polled_many_times_then_dispatch_is_created_once() throws Exception {
+    Path requestFile = Files.write(tempDir.resolve("request.xml"), REQUEST_ENVELOPE.getBytes(StandardCharsets.UTF_8));
+    SoapClient spiedClient = spy(new SoapClient());
+    doReturn(mockDispatch).when(spiedClient).createDispatch(any(), any(), any());
+    when(mockDispatch.invoke(any())).thenReturn(mockReturnMessage);
+
+    spiedClient.start(new SoapClientConfig(clientSettings(requestFile.toString())));
+    for (int i = 0; i < 50; i++) {
+      spiedClient.call();
+    }
 
-    when(mockTask.call()).thenReturn(mockReturnMessage);
-    assertDoesNotThrow(() -> stubbedClassToTest.poll(5000L));
+    verify(spiedClient, times(1)).createDispatch(any(), any(), any());
+    verify(mockDispatch, times(50)).invoke(any());
+    assertEquals(1, spiedClient.dispatchesCreated());
+    spiedClient.stop();
   }
 
+  @Test
+  public void given_missing_request_file_when_called_then_original_exception_reaches_the_caller() throws Exception {
+    SoapClient spiedClient = spy(new SoapClient());
+    doReturn(mockDispatch).when(spiedClient).createDispatch(any(), any(), any());
+
+    spiedClient.start(new SoapClientConfig(clientSettings(tempDir.resolve("missing.xml").toString())));
+
+    assertThrows(FileNotFoundException.class, spiedClient::call);
+    spiedClient.stop();
+  }
+
+  private static Map<String, String> clientSettings(String requestFile) {
+    Map<String, String> settings = new HashMap<>();
+    settings.put(SoapClientConfig.ENDPOINT_URL, URL);
+    settings.put(SoapClientConfig.PORT_NAME, PORT_NAME);
+    settings.put(SoapClientConfig.REQUEST_MSG_FILE, requestFile);
+    settings.put(SoapClientConfig.SERVICE_NAME, SERVICE);
+    settings.put(SoapClientConfig.SOAP_ACTION, SOAP_ACTION);
+    settings.put(SoapClientConfig.TARGET_NAMESPACE, TARGET_NAME_SPACE);
+    settings.put(SoapClientConfig.CONNECTION_TIMEOUT, CONNECTION_TIMEOUT.toString());
+    settings.put(SoapClientConfig.TOPIC, "topic");
+    return settings;
+  }
 }
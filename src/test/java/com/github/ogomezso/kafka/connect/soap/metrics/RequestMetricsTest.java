@@ -0,0 +1,167 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.metrics;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.github.ogomezso.kafka.connect.soap.scheduler.SharedExecutor;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class RequestMetricsTest {
+
+  private SoapMetrics soapMetrics;
+  private RequestMetrics classToTest;
+
+  @BeforeEach
+  public void setUp() {
+    soapMetrics = new SoapMetrics(new Metrics(), "soap-connector", 0);
+    classToTest = soapMetrics.request("getCountries", 1000L);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    soapMetrics.close();
+  }
+
+  @Test
+  public void given_calls_when_recorded_then_latency_and_bytes_are_reported() {
+    for (int i = 1; i <= 100; i++) {
+      classToTest.recordCall(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(i));
+      classToTest.recordResponseBytes(1024);
+    }
+
+    double p50 = value("call-latency-p50", RequestMetrics.REQUEST_GROUP, classToTest.tags());
+    double p99 = value("call-latency-p99", RequestMetrics.REQUEST_GROUP, classToTest.tags());
+    assertTrue(p50 >= 45 && p50 <= 55, "p50 was " + p50);
+    assertTrue(p99 >= 95, "p99 was " + p99);
+    assertTrue(value("call-latency-max", RequestMetrics.REQUEST_GROUP, classToTest.tags()) >= 100);
+    assertEquals(102400.0, value("response-bytes-total", RequestMetrics.REQUEST_GROUP, classToTest.tags()));
+  }
+
+  @Test
+  public void given_records_and_mapping_when_recorded_then_reported_per_request_type() {
+    RequestMetrics other = soapMetrics.request("getCurrencies", 1000L);
+
+    classToTest.recordMapping(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(8));
+    classToTest.recordRecord();
+    classToTest.recordRecord();
+    other.recordRecord();
+
+    assertTrue(value("mapping-time-avg", RequestMetrics.REQUEST_GROUP, classToTest.tags()) >= 8);
+    assertEquals(2.0, value("records-total", RequestMetrics.REQUEST_GROUP, classToTest.tags()));
+    assertEquals(1.0, value("records-total", RequestMetrics.REQUEST_GROUP, other.tags()));
+  }
+
+  @Test
+  public void given_failures_when_recorded_then_counted_by_exception_type() {
+    classToTest.recordError(new RejectedExecutionException("limit reached"));
+    classToTest.recordError(new RejectedExecutionException("limit reached"));
+    classToTest.recordError(new IllegalStateException("down"));
+
+    assertEquals(2.0, value("errors-total", RequestMetrics.REQUEST_GROUP,
+        errorTags("RejectedExecutionException")));
+    assertEquals(1.0, value("errors-total", RequestMetrics.REQUEST_GROUP, errorTags("IllegalStateException")));
+  }
+
+  @Test
+  public void given_wrapped_failure_when_recorded_then_counted_by_root_cause() {
+    classToTest.recordError(new CompletionException(new IllegalStateException("down")));
+    classToTest.recordError(new IllegalStateException("down"));
+
+    assertEquals(2.0, value("errors-total", RequestMetrics.REQUEST_GROUP, errorTags("IllegalStateException")));
+  }
+
+  @Test
+  public void given_client_when_registered_then_breaker_state_and_queue_depth_are_reported() {
+    CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("metrics-test");
+    SharedExecutor executor = new SharedExecutor(1);
+    try {
+      classToTest.registerCircuitBreaker(circuitBreaker);
+      classToTest.registerExecutor(executor);
+      // registering again, as a restarted client does, is harmless
+      classToTest.registerCircuitBreaker(circuitBreaker);
+
+      assertEquals("CLOSED", metricValue("circuit-breaker-state", RequestMetrics.CLIENT_GROUP, classToTest.tags()));
+      circuitBreaker.transitionToOpenState();
+      assertEquals("OPEN", metricValue("circuit-breaker-state", RequestMetrics.CLIENT_GROUP, classToTest.tags()));
+      assertEquals(0.0, metricValue("executor-queue-depth", RequestMetrics.CLIENT_GROUP, classToTest.tags()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void given_removed_request_then_only_its_metrics_are_unregistered() {
+    RequestMetrics other = soapMetrics.request("getCurrencies", 1000L);
+    classToTest.recordError(new IllegalStateException("down"));
+
+    soapMetrics.remove("getCountries");
+
+    assertNull(soapMetrics.registry().metric(
+        new MetricName("records-total", RequestMetrics.REQUEST_GROUP, "", classToTest.tags())));
+    assertNull(soapMetrics.registry().metric(
+        new MetricName("errors-total", RequestMetrics.REQUEST_GROUP, "", errorTags("IllegalStateException"))));
+    assertNull(SoapMetrics.running("soap-connector", "getCountries"));
+    assertEquals(0.0, value("records-total", RequestMetrics.REQUEST_GROUP, other.tags()));
+  }
+
+  @Test
+  public void given_unregistered_metrics_when_released_then_their_registry_is_closed() {
+    RequestMetrics unregistered = RequestMetrics.unregistered("getCountries");
+    MetricsReporter reporter = mock(MetricsReporter.class);
+    unregistered.registry().addReporter(reporter);
+    MetricsReporter taskReporter = mock(MetricsReporter.class);
+    soapMetrics.registry().addReporter(taskReporter);
+
+    unregistered.release();
+    classToTest.release();
+
+    verify(reporter).close();
+    verify(taskReporter, never()).close();
+  }
+
+  private Map<String, String> errorTags(String exception) {
+    Map<String, String> tags = new LinkedHashMap<>(classToTest.tags());
+    tags.put(RequestMetrics.EXCEPTION_TAG, exception);
+    return tags;
+  }
+
+  private double value(String name, String group, Map<String, String> tags) {
+    return (Double) metricValue(name, group, tags);
+  }
+
+  private Object metricValue(String name, String group, Map<String, String> tags) {
+    return soapMetrics.registry().metric(new MetricName(name, group, "", tags)).metricValue();
+  }
+}
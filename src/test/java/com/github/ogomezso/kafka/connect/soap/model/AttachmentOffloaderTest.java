@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import jakarta.xml.soap.AttachmentPart;
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.SOAPElement;
+import jakarta.xml.soap.SOAPMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AttachmentOffloaderTest {
+
+  private static final RecordKey KEY = RecordKey.builder().serviceName("service")
+      .requestType("/data/getDocument.xml").build();
+  private static final byte[] CONTENT = "%PDF-1.4 not really a pdf".getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  Path tempDir;
+
+  private final SourceRecordMapper mapper = new SourceRecordMapper();
+
+  private static SOAPMessage mtomMessage(String contentId) throws Exception {
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    SOAPElement document = message.getSOAPBody().addChildElement("getDocumentResponse")
+        .addChildElement("document");
+    document.addChildElement("Include", "xop", AttachmentOffloader.XOP_NAMESPACE)
+        .setAttribute("href", "cid:" + contentId);
+    AttachmentPart attachment = message.createAttachmentPart();
+    attachment.setRawContent(new ByteArrayInputStream(CONTENT), "application/pdf");
+    attachment.setContentId("<" + contentId + ">");
+    message.addAttachmentPart(attachment);
+    message.saveChanges();
+    return message;
+  }
+
+  @Test
+  public void given_xop_include_when_offloaded_then_content_stored_and_record_carries_reference() throws Exception {
+    SOAPMessage message = mtomMessage("doc1@example.org");
+    AttachmentOffloader classToTest = new AttachmentOffloader(tempDir);
+
+    assertEquals(1, classToTest.offload(message, KEY));
+
+    String sha256 = hex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+    Path stored = tempDir.resolve("getDocument_xml").resolve(sha256);
+    assertArrayEquals(CONTENT, Files.readAllBytes(stored));
+    assertEquals("{\"document\":{\"path\":\"" + stored.toAbsolutePath().toString().replace("\\", "\\\\")
+            + "\",\"size\":\"" + CONTENT.length + "\",\"sha256\":\"" + sha256
+            + "\",\"contentType\":\"application/pdf\"}}",
+        mapper.valueToJsonString(message));
+  }
+
+  @Test
+  public void given_same_attachment_twice_when_offloaded_then_stored_once() throws Exception {
+    AttachmentOffloader classToTest = new AttachmentOffloader(tempDir);
+
+    classToTest.offload(mtomMessage("first"), KEY);
+    classToTest.offload(mtomMessage("second"), KEY);
+
+    try (Stream<Path> files = Files.list(tempDir.resolve("getDocument_xml"))) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  public void given_message_without_attachments_when_offloaded_then_nothing_written() throws Exception {
+    SOAPMessage message = MessageFactory.newInstance().createMessage();
+    message.getSOAPBody().addChildElement("plain").addTextNode("text");
+
+    assertEquals(0, new AttachmentOffloader(tempDir).offload(message, KEY));
+    assertFalse(Files.exists(tempDir.resolve("getDocument_xml")));
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : bytes) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
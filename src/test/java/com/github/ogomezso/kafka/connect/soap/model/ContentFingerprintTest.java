@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapperTest.soapMessage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ContentFingerprintTest {
+
+  private static String fingerprint(String payload) throws Exception {
+    return ContentFingerprint.of(soapMessage(payload).getSOAPBody());
+  }
+
+  @Test
+  public void given_same_content_written_differently_when_fingerprinted_then_equal() throws Exception {
+    String expected = fingerprint("<a:list xmlns:a=\"urn:x\"><a:item id=\"1\" code=\"c\">one</a:item></a:list>");
+
+    assertEquals(expected, fingerprint("<b:list xmlns:b=\"urn:x\">\n  <!-- note -->\n"
+        + "  <b:item code=\"c\" id=\"1\">  one </b:item>\n</b:list>"));
+  }
+
+  @Test
+  public void given_changed_content_when_fingerprinted_then_different() throws Exception {
+    String expected = fingerprint("<list><item id=\"1\">one</item></list>");
+
+    assertNotEquals(expected, fingerprint("<list><item id=\"1\">two</item></list>"));
+    assertNotEquals(expected, fingerprint("<list><item id=\"2\">one</item></list>"));
+    assertNotEquals(expected, fingerprint("<list xmlns=\"urn:y\"><item id=\"1\">one</item></list>"));
+    assertNotEquals(expected, fingerprint("<list><item id=\"1\">one</item><item/></list>"));
+  }
+
+  @Test
+  public void given_payload_outside_a_soap_message_when_hashed_then_same_as_in_the_body() throws Exception {
+    String payload = "<a:list xmlns:a=\"urn:x\"><a:item id=\"1\">o<![CDATA[n]]>e<!-- note --></a:item><a:e/></a:list>";
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    Element element = factory.newDocumentBuilder()
+        .parse(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8))).getDocumentElement();
+
+    assertEquals(fingerprint(payload), Long.toHexString(ContentFingerprint.hash(element)));
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemSnapshotTest {
+
+  private final ItemSnapshot classToTest = new ItemSnapshot();
+
+  @Test
+  public void given_items_when_put_again_then_insert_update_and_unchanged_reported() {
+    classToTest.beginCycle();
+    assertEquals(ItemSnapshot.Change.INSERT, classToTest.put("a", 1L));
+    assertEquals(ItemSnapshot.Change.INSERT, classToTest.put("b", 2L));
+
+    classToTest.beginCycle();
+    assertEquals(ItemSnapshot.Change.UNCHANGED, classToTest.put("a", 1L));
+    assertEquals(ItemSnapshot.Change.UPDATE, classToTest.put("b", 3L));
+    assertEquals(2, classToTest.size());
+  }
+
+  @Test
+  public void given_items_when_compared_then_change_reported_without_recording_it() {
+    classToTest.beginCycle();
+    classToTest.put("a", 1L);
+
+    assertEquals(ItemSnapshot.Change.UPDATE, classToTest.compare("a", 2L));
+    assertEquals(ItemSnapshot.Change.INSERT, classToTest.compare("b", 1L));
+    assertEquals(ItemSnapshot.Change.UNCHANGED, classToTest.compare("a", 1L));
+    assertEquals(1, classToTest.size());
+  }
+
+  @Test
+  public void given_items_missing_from_cycle_when_removed_then_their_keys_are_reported() {
+    classToTest.beginCycle();
+    classToTest.put("a", 1L);
+    classToTest.put("ñandú", 2L);
+    classToTest.put("c", 3L);
+
+    classToTest.beginCycle();
+    classToTest.put("a", 1L);
+    List<String> removed = new ArrayList<>();
+    classToTest.removeUnseen(removed::add);
+
+    Collections.sort(removed);
+    assertEquals(2, removed.size());
+    assertEquals("c", removed.get(0));
+    assertEquals("ñandú", removed.get(1));
+    assertEquals(1, classToTest.size());
+  }
+
+  @Test
+  public void given_many_items_when_half_removed_then_remaining_ones_are_still_found() {
+    int items = 200_000;
+    classToTest.beginCycle();
+    for (int i = 0; i < items; i++) {
+      classToTest.put("item-" + i, i);
+    }
+
+    classToTest.beginCycle();
+    for (int i = 0; i < items; i += 2) {
+      classToTest.put("item-" + i, i);
+    }
+    List<String> removed = new ArrayList<>();
+    classToTest.removeUnseen(removed::add);
+
+    assertEquals(items / 2, removed.size());
+    assertEquals(items / 2, classToTest.size());
+    classToTest.beginCycle();
+    for (int i = 0; i < items; i++) {
+      ItemSnapshot.Change expected = i % 2 == 0 ? ItemSnapshot.Change.UNCHANGED : ItemSnapshot.Change.INSERT;
+      assertEquals(expected, classToTest.put("item-" + i, i));
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import jakarta.xml.soap.SOAPException;
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapperTest.soapMessage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ItemSplitterTest {
+
+  private static final String PAYLOAD = "<ns2:list xmlns:ns2=\"urn:test\">"
+      + "<ns2:items><ns2:item id=\"a\"><ns2:name>one</ns2:name></ns2:item>"
+      + "<ns2:item><ns2:code>b</ns2:code></ns2:item><ns2:other/><ns2:item/></ns2:items>"
+      + "<ns2:items><ns2:item id=\"d\"/></ns2:items></ns2:list>";
+
+  @Test
+  public void given_element_path_when_split_then_every_matching_element_is_an_item() throws Exception {
+    List<Element> items = new ItemSplitter("items/item", "").items(soapMessage(PAYLOAD).getSOAPBody());
+
+    assertEquals(4, items.size());
+  }
+
+  @Test
+  public void given_wildcard_path_when_split_then_any_name_matches() throws Exception {
+    List<Element> items = new ItemSplitter("*/*", "").items(soapMessage(PAYLOAD).getSOAPBody());
+
+    assertEquals(5, items.size());
+  }
+
+  @Test
+  public void given_item_key_when_item_id_then_attribute_child_or_position_is_used() throws Exception {
+    ItemSplitter classToTest = new ItemSplitter("items/item", "id");
+    List<Element> items = classToTest.items(soapMessage(PAYLOAD).getSOAPBody());
+
+    assertEquals("a", classToTest.itemId(items.get(0), 0));
+    assertEquals("2", classToTest.itemId(items.get(2), 2));
+    assertEquals("b", new ItemSplitter("items/item", "code").itemId(items.get(1), 1));
+  }
+
+  @Test
+  public void given_envelope_stream_when_split_then_items_are_handed_over_as_read() throws Exception {
+    ItemSplitter classToTest = new ItemSplitter("items/item", "id");
+    List<String> ids = new ArrayList<>();
+
+    int count = classToTest.forEachItem(envelope(PAYLOAD),
+        (item, position) -> ids.add(classToTest.itemId(item, position)));
+
+    assertEquals(4, count);
+    assertEquals(Arrays.asList("a", "1", "2", "d"), ids);
+    assertEquals(5, new ItemSplitter("*/*", "").forEachItem(envelope(PAYLOAD), (item, position) -> { }));
+  }
+
+  @Test
+  public void given_fault_stream_when_split_then_soap_exception() {
+    String fault = "<soapenv:Fault><faultcode>soapenv:Server</faultcode><faultstring>boom</faultstring>"
+        + "</soapenv:Fault>";
+
+    assertThrows(SOAPException.class,
+        () -> new ItemSplitter("items/item", "").forEachItem(envelope(fault), (item, position) -> { }));
+  }
+
+  @Test
+  public void given_empty_path_when_created_then_config_exception() {
+    assertThrows(ConfigException.class, () -> new ItemSplitter(" / ", ""));
+  }
+
+  private static InputStream envelope(String payload) {
+    String envelope = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+        + "<soapenv:Body>" + payload + "</soapenv:Body></soapenv:Envelope>";
+    return new ByteArrayInputStream(envelope.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPException;
+import jakarta.xml.soap.SOAPMessage;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SourceRecordMapperTest {
+
+  private static final String ENVELOPE_START =
+      "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+          + "<soapenv:Header/>\n  <soapenv:Body>\n    ";
+  private static final String ENVELOPE_END = "\n  </soapenv:Body>\n</soapenv:Envelope>";
+
+  private final SourceRecordMapper classToTest = new SourceRecordMapper();
+
+  static SOAPMessage soapMessage(String payload) throws Exception {
+    MimeHeaders headers = new MimeHeaders();
+    headers.addHeader("Content-Type", "text/xml; charset=utf-8");
+    return MessageFactory.newInstance().createMessage(headers,
+        new ByteArrayInputStream((ENVELOPE_START + payload + ENVELOPE_END).getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static InputStream envelope(String payload) {
+    return new ByteArrayInputStream((ENVELOPE_START + payload + ENVELOPE_END).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "<ns2:getCountryResponse xmlns:ns2=\"http://spring.io/guides/gs-producing-web-service\">"
+          + "<ns2:country><ns2:name>Spain</ns2:name><ns2:population>46704314</ns2:population>"
+          + "<ns2:capital>Madrid</ns2:capital><ns2:currency>EUR</ns2:currency></ns2:country>"
+          + "</ns2:getCountryResponse>",
+      "<response id=\"42\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+          + "  <price currency=\"EUR\">10.5</price>\n  <empty/>\n  <blank>  </blank>\n"
+          + "  <nested><deeper xsi:type=\"string\">a &amp; b</deeper></nested>\n</response>",
+      "<list><item>one</item><item>two</item><other>x</other><item>three</item></list>",
+      "<text>only text</text>"
+  })
+  public void given_soap_response_when_mapped_then_json_equals_serialized_mapping(String payload) throws Exception {
+    String expected = classToTest.serializedValueToJsonString(soapMessage(payload));
+    String actual = classToTest.valueToJsonString(soapMessage(payload));
+
+    assertEquals(expected, actual);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "<response id=\"42\">\n  <price currency=\"EUR\">10.5</price>\n  <empty/>\n  <blank>  </blank>\n</response>",
+      "<list><item>one</item><item>two</item><other>x</other><item>three</item></list>",
+      "<text>only text</text>"
+  })
+  public void given_response_stream_when_mapped_then_json_equals_serialized_mapping(String payload) throws Exception {
+    RecordKey key = RecordKey.builder().serviceName("service").requestType("request").build();
+    String expected = classToTest.serializedValueToJsonString(soapMessage(payload));
+
+    SourceRecord actual = classToTest.getSourceRecordFromStream(key, envelope(payload), "topic",
+        ValueFormat.JSON_STRING, Collections.emptyMap());
+
+    assertEquals(expected, ((Struct) actual.value()).getString(RecordValueStruct.DATA));
+  }
+
+  @Test
+  public void given_repeated_elements_when_mapped_then_they_become_an_array_at_the_first_position() throws Exception {
+    String payload = "<list id=\"1\"><item>one</item><item><name>two</name><tag>a</tag><tag>b</tag></item>"
+        + "<other>x</other><item>three</item><empty/></list>";
+
+    String actual = classToTest.valueToJsonString(soapMessage(payload));
+
+    assertEquals("{\"id\":\"1\",\"item\":[\"one\",{\"name\":\"two\",\"tag\":[\"a\",\"b\"]},\"three\"],"
+        + "\"other\":\"x\",\"empty\":\"\"}", actual);
+  }
+
+  @Test
+  public void given_fault_in_response_stream_when_mapped_then_soap_exception() {
+    RecordKey key = RecordKey.builder().serviceName("service").requestType("request").build();
+    String fault = "<soapenv:Fault><faultcode>soapenv:Server</faultcode><faultstring>boom</faultstring>"
+        + "</soapenv:Fault>";
+
+    SOAPException actual = assertThrows(SOAPException.class, () -> classToTest.getSourceRecordFromStream(key,
+        envelope(fault), "topic", ValueFormat.JSON_STRING, Collections.emptyMap()));
+
+    assertEquals("SOAP fault: boom", actual.getMessage());
+  }
+
+  @Test
+  public void given_struct_format_when_mapped_then_value_schema_is_inferred_struct() throws Exception {
+    RecordKey key = RecordKey.builder().serviceName("service").requestType("request").build();
+    String payload = "<country><name>Spain</name><capital>Madrid</capital></country>";
+
+    SourceRecord actual = classToTest.getSourceRecordFromSoapMessage(key, soapMessage(payload), "topic",
+        ValueFormat.STRUCT);
+
+    Struct value = (Struct) actual.value();
+    assertSame(value.schema(), actual.valueSchema());
+    assertEquals("Madrid", value.getString("capital"));
+  }
+
+  @Test
+  public void given_split_item_when_mapped_then_record_holds_item_and_keyed_by_item_id() throws Exception {
+    RecordKey key = RecordKey.builder().serviceName("service").requestType("request").build();
+    SOAPMessage message = soapMessage("<list><item><name>one</name></item><item><name>two</name></item></list>");
+    List<Element> items = new ItemSplitter("item", "").items(message.getSOAPBody());
+
+    SourceRecord actual = classToTest.getSourceRecordFromItem(key.toBuilder().itemId("1").build(), items.get(1),
+        "topic", ValueFormat.JSON_STRING, Collections.emptyMap());
+
+    assertEquals("{\"serviceName\":\"service\",\"requestType\":\"request\",\"itemId\":\"1\"}",
+        ((Struct) actual.key()).getString(RecordKeyStruct.DATA));
+    assertEquals("{\"name\":\"two\"}", ((Struct) actual.value()).getString(RecordValueStruct.DATA));
+  }
+
+  @Test
+  public void given_concurrent_mapping_threads_when_serialized_mapping_then_results_not_mixed() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int t = 0; t < 8; t++) {
+      String payload = "<response><thread>" + t + "</thread><value>v" + t + "</value></response>";
+      String expected = "{\"thread\":\"" + t + "\",\"value\":\"v" + t + "\"}";
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 50; i++) {
+          assertEquals(expected, classToTest.serializedValueToJsonString(soapMessage(payload)));
+        }
+        return null;
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.model;
+
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StructInferrerTest {
+
+  private static final String REQUEST_TYPE = "/requests/getCountry";
+
+  private final XmlFactory xmlFactory = new XmlFactory();
+  private final StructInferrer classToTest = new StructInferrer();
+
+  private Struct toStruct(String xml) throws Exception {
+    return classToTest.toStruct(REQUEST_TYPE, xmlFactory.createParser(xml));
+  }
+
+  @Test
+  public void given_nested_response_when_converted_then_struct_follows_its_shape() throws Exception {
+    Struct actual = toStruct("<list id=\"7\"><item>one</item><item>two</item>"
+        + "<info><total-count>2</total-count></info><price currency=\"EUR\">10.5</price></list>");
+
+    assertEquals("com.github.ogomezso.kafka.connect.soap.getCountry", actual.schema().name());
+    assertEquals("7", actual.getString("id"));
+    assertEquals(Arrays.asList("one", "two"), actual.getArray("item"));
+    assertEquals("2", first(actual, "info").getString("total_count"));
+    assertEquals("EUR", first(actual, "price").getString("currency"));
+    assertEquals("10.5", first(actual, "price").getString(StructInferrer.TEXT_FIELD));
+    assertEquals("com.github.ogomezso.kafka.connect.soap.getCountry.price",
+        actual.schema().field("price").schema().valueSchema().name());
+  }
+
+  @Test
+  public void given_same_shape_when_converted_twice_then_cached_schema_is_reused() throws Exception {
+    Struct first = toStruct("<country><name>Spain</name><capital>Madrid</capital></country>");
+    Struct second = toStruct("<country><name>France</name><capital>Paris</capital></country>");
+
+    assertSame(first.schema(), second.schema());
+    assertSame(first.schema(), classToTest.cachedSchema(REQUEST_TYPE));
+    assertEquals("Paris", second.getString("capital"));
+  }
+
+  @Test
+  public void given_new_field_when_converted_then_schema_grows_and_keeps_old_fields() throws Exception {
+    Struct first = toStruct("<country><name>Spain</name></country>");
+    Struct evolved = toStruct("<country><name>France</name><currency>EUR</currency></country>");
+    Struct old = toStruct("<country><name>Italy</name></country>");
+
+    assertNotSame(first.schema(), evolved.schema());
+    assertEquals(2, evolved.schema().fields().size());
+    assertSame(evolved.schema(), old.schema());
+    assertNull(old.getString("currency"));
+  }
+
+  @Test
+  public void given_leaf_repeated_later_when_converted_then_field_keeps_its_type() throws Exception {
+    Struct single = toStruct("<list><item>one</item></list>");
+    Struct repeated = toStruct("<list><item>one</item><item>two</item></list>");
+
+    assertSame(single.schema(), repeated.schema());
+    assertEquals(Schema.Type.STRING, repeated.schema().field("item").schema().type());
+    assertEquals("[\"one\",\"two\"]", repeated.getString("item"));
+  }
+
+  @Test
+  public void given_leaf_with_children_later_when_converted_then_field_keeps_its_type() throws Exception {
+    Struct leaf = toStruct("<country><name>Spain</name></country>");
+    Struct nested = toStruct("<country><name><official>Kingdom of Spain</official></name></country>");
+
+    assertSame(leaf.schema(), nested.schema());
+    assertEquals("{\"official\":\"Kingdom of Spain\"}", nested.getString("name"));
+  }
+
+  @Test
+  public void given_element_with_children_repeated_later_when_converted_then_field_keeps_its_type()
+      throws Exception {
+    Struct single = toStruct("<list><entry><id>1</id></entry></list>");
+    Struct repeated = toStruct("<list><entry><id>1</id></entry><entry><id>2</id><tag>new</tag></entry></list>");
+
+    Schema entry = repeated.schema().field("entry").schema();
+    assertEquals(Schema.Type.ARRAY, single.schema().field("entry").schema().type());
+    assertEquals(Schema.Type.ARRAY, entry.type());
+    assertEquals("com.github.ogomezso.kafka.connect.soap.getCountry.entry", entry.valueSchema().name());
+    assertEquals(2, repeated.getArray("entry").size());
+    assertEquals("new", ((Struct) repeated.getArray("entry").get(1)).getString("tag"));
+  }
+
+  private static Struct first(Struct struct, String field) {
+    return (Struct) struct.getArray(field).get(0);
+  }
+}
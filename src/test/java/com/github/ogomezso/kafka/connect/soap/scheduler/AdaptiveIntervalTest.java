@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.scheduler;
+
+import com.github.ogomezso.kafka.connect.soap.scheduler.AdaptiveInterval.Outcome;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveIntervalTest {
+
+  @Test
+  public void given_failures_when_not_adapting_then_backs_off_to_max_and_resets_on_success() {
+    AdaptiveInterval classToTest = new AdaptiveInterval(1000, 100, 5000, 2.0, false);
+
+    assertEquals(2000, classToTest.next(Outcome.FAILED));
+    assertEquals(4000, classToTest.next(Outcome.FAILED));
+    assertEquals(5000, classToTest.next(Outcome.FAILED));
+    assertEquals(5000, classToTest.next(Outcome.FAILED));
+    assertEquals(1000, classToTest.next(Outcome.UNCHANGED));
+    assertEquals(1000, classToTest.next(Outcome.CHANGED));
+  }
+
+  @Test
+  public void given_changing_responses_when_adapting_then_interval_shrinks_to_min() {
+    AdaptiveInterval classToTest = new AdaptiveInterval(1000, 300, 5000, 2.0, true);
+
+    assertEquals(500, classToTest.next(Outcome.CHANGED));
+    assertEquals(300, classToTest.next(Outcome.CHANGED));
+    assertEquals(300, classToTest.next(Outcome.CHANGED));
+  }
+
+  @Test
+  public void given_identical_responses_when_adapting_then_interval_grows_to_max() {
+    AdaptiveInterval classToTest = new AdaptiveInterval(1000, 300, 5000, 2.0, true);
+
+    assertEquals(2000, classToTest.next(Outcome.UNCHANGED));
+    assertEquals(4000, classToTest.next(Outcome.UNCHANGED));
+    assertEquals(5000, classToTest.next(Outcome.UNCHANGED));
+    assertEquals(2500, classToTest.next(Outcome.CHANGED));
+  }
+
+  @Test
+  public void given_recovery_after_failures_when_adapting_then_back_off_is_dropped() {
+    AdaptiveInterval classToTest = new AdaptiveInterval(1000, 300, 5000, 2.0, true);
+
+    classToTest.next(Outcome.FAILED);
+    classToTest.next(Outcome.FAILED);
+    assertEquals(500, classToTest.next(Outcome.CHANGED));
+  }
+
+  @Test
+  public void given_skipped_cycle_when_next_then_interval_kept() {
+    AdaptiveInterval classToTest = new AdaptiveInterval(1000, 300, 5000, 2.0, true);
+    classToTest.next(Outcome.UNCHANGED);
+
+    assertEquals(2000, classToTest.next(null));
+  }
+}
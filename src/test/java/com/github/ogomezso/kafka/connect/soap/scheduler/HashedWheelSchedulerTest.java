@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelSchedulerTest {
+
+  private HashedWheelScheduler classToTest;
+
+  @BeforeEach
+  void setup() {
+    classToTest = new HashedWheelScheduler(10, TimeUnit.MILLISECONDS, 8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    classToTest.stop();
+  }
+
+  @Test
+  public void given_scheduled_tasks_beyond_one_wheel_turn_when_expired_then_all_run() throws Exception {
+    CountDownLatch latch = new CountDownLatch(3);
+    long start = System.nanoTime();
+
+    classToTest.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+    classToTest.schedule(latch::countDown, 150, TimeUnit.MILLISECONDS); // two turns of an 8 x 10ms wheel
+    classToTest.schedule(latch::countDown, 300, TimeUnit.MILLISECONDS);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 300);
+  }
+
+  @Test
+  public void given_cancelled_task_when_deadline_passes_then_it_does_not_run() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    classToTest.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS).cancel();
+    classToTest.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(0, runs.get());
+  }
+}
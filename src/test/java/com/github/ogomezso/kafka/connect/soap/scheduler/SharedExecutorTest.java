@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedExecutorTest {
+
+  @Test
+  public void given_busy_executor_when_tasks_submitted_then_reports_queue_depth_and_active_threads() throws Exception {
+    SharedExecutor classToTest = new SharedExecutor(1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(4);
+
+    classToTest.execute(() -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      finished.countDown();
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 3; i++) {
+      classToTest.execute(finished::countDown);
+    }
+
+    assertEquals(1, classToTest.poolSize());
+    assertEquals(1, classToTest.activeThreads());
+    assertEquals(3, classToTest.queueDepth());
+
+    release.countDown();
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+    classToTest.shutdownNow();
+  }
+
+  @Test
+  public void given_io_pool_full_when_more_calls_submitted_then_they_wait_for_a_thread() throws Exception {
+    SharedExecutor classToTest = new SharedExecutor(1, 2);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    CountDownLatch finished = new CountDownLatch(5);
+
+    for (int i = 0; i < 5; i++) {
+      classToTest.io().execute(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        finished.countDown();
+      });
+    }
+    Thread.sleep(100);
+    release.countDown();
+
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+    assertEquals(2, classToTest.ioPoolSize());
+    assertEquals(2, maxRunning.get());
+    classToTest.shutdownNow();
+  }
+}
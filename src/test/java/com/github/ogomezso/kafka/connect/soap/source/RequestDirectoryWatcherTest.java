@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestDirectoryWatcherTest {
+
+  private static final byte[] REQUEST = "<request/>".getBytes(StandardCharsets.UTF_8);
+  private static final long TIMEOUT_MS = 10000L;
+
+  @TempDir
+  Path tempDir;
+
+  private final Set<Path> running = ConcurrentHashMap.newKeySet();
+  private RequestDirectoryWatcher classToTest;
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    if (classToTest != null) {
+      classToTest.close();
+    }
+  }
+
+  @Test
+  public void given_existing_files_when_started_then_matching_ones_are_added() throws Exception {
+    Path first = Files.write(tempDir.resolve("first.xml"), REQUEST);
+    Path second = Files.write(tempDir.resolve("second.xml"), REQUEST);
+    Files.write(tempDir.resolve("notes.txt"), REQUEST);
+
+    start(0, 1);
+
+    awaitTrue(() -> running.size() == 2);
+    assertEquals(new HashSet<>(Arrays.asList(first, second)), running);
+  }
+
+  @Test
+  public void given_running_watcher_when_files_are_created_and_deleted_then_requests_follow() throws Exception {
+    start(0, 1);
+
+    Path file = Files.write(tempDir.resolve("added.xml"), REQUEST);
+    awaitTrue(() -> running.contains(file));
+
+    Files.delete(file);
+    awaitTrue(running::isEmpty);
+  }
+
+  @Test
+  public void given_two_shards_then_each_file_belongs_to_exactly_one() {
+    RequestDirectoryWatcher shard0 = new RequestDirectoryWatcher(tempDir, "*.xml", 0, 2, null);
+    RequestDirectoryWatcher shard1 = new RequestDirectoryWatcher(tempDir, "*.xml", 1, 2, null);
+
+    for (int i = 0; i < 100; i++) {
+      Path file = tempDir.resolve("request-" + i + ".xml");
+      assertTrue(shard0.owns(file) ^ shard1.owns(file));
+    }
+    assertFalse(shard0.owns(tempDir.resolve("request.txt")) || shard1.owns(tempDir.resolve("request.txt")));
+  }
+
+  @Test
+  public void given_failing_start_when_file_changes_then_retried() throws Exception {
+    Set<Path> failed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    classToTest = new RequestDirectoryWatcher(tempDir, "*.xml", 0, 1, new RequestDirectoryWatcher.Listener() {
+      @Override
+      public void added(Path file) {
+        if (failed.add(file)) {
+          throw new IllegalStateException("not yet");
+        }
+        running.add(file);
+      }
+
+      @Override
+      public void removed(Path file) {
+        running.remove(file);
+      }
+    });
+    classToTest.start();
+
+    Path file = Files.write(tempDir.resolve("broken.xml"), REQUEST);
+    awaitTrue(() -> failed.contains(file));
+    Files.write(file, REQUEST);
+
+    awaitTrue(() -> running.contains(file));
+  }
+
+  private void start(int shard, int shards) throws Exception {
+    classToTest = new RequestDirectoryWatcher(tempDir, "*.xml", shard, shards, new RequestDirectoryWatcher.Listener() {
+      @Override
+      public void added(Path file) {
+        running.add(file);
+      }
+
+      @Override
+      public void removed(Path file) {
+        running.remove(file);
+      }
+    });
+    classToTest.start();
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in " + TIMEOUT_MS + " ms");
+      Thread.sleep(20);
+    }
+  }
+}
@@ -0,0 +1,474 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import com.github.ogomezso.kafka.connect.soap.client.SoapClient;
+import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
+import com.github.ogomezso.kafka.connect.soap.model.ContentFingerprint;
+import com.github.ogomezso.kafka.connect.soap.model.RecordKey;
+import com.github.ogomezso.kafka.connect.soap.model.SourceRecordMapper;
+import com.github.ogomezso.kafka.connect.soap.model.ValueFormat;
+import jakarta.xml.soap.MessageFactory;
+import jakarta.xml.soap.MimeHeaders;
+import jakarta.xml.soap.SOAPMessage;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SoapRequestPollerTest {
+
+  private static final String TOPIC = "topic";
+  private static final RecordKey KEY = RecordKey.builder().serviceName("fakeService").requestType("request").build();
+
+  private final BlockingQueue<PolledRecord> queue = new ArrayBlockingQueue<>(10);
+  @Mock
+  private SoapClient mockClient;
+  // lenient: the poller reads every setting, each test only stubs the ones it is about
+  @Mock(lenient = true)
+  private SoapClientConfig mockConfig;
+  @Mock
+  private SourceRecordMapper mockMapper;
+  @Mock
+  private SOAPMessage mockResponse;
+  @Mock
+  private SourceRecord mockRecord;
+
+  @BeforeEach
+  void setup() {
+    when(mockClient.getConfig()).thenReturn(mockConfig);
+    when(mockConfig.getString(SoapClientConfig.VALUE_FORMAT)).thenReturn(ValueFormat.JSON_STRING.name());
+  }
+
+  @Test
+  public void given_ok_response_when_run_then_record_is_queued() throws Exception {
+    when(mockClient.call(Collections.emptyMap())).thenReturn(mockResponse);
+    when(mockMapper.getSourceRecordFromSoapMessage(KEY, mockResponse, TOPIC, ValueFormat.JSON_STRING,
+        Collections.emptyMap()))
+        .thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+
+    assertEquals(1, queue.size());
+    assertSame(mockRecord, queue.poll().getRecord());
+  }
+
+  @Test
+  public void given_failing_client_when_run_then_nothing_queued_and_no_exception_thrown() throws Exception {
+    when(mockClient.call(Collections.emptyMap())).thenThrow(new RuntimeException("Unexpected Error fetching Service"));
+
+    assertDoesNotThrow(() -> new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void given_async_client_when_run_then_response_mapped_on_executor_and_queued() throws Exception {
+    when(mockClient.invokesAsync()).thenReturn(true);
+    CompletableFuture<SOAPMessage> call = new CompletableFuture<>();
+    when(mockClient.callAsync(Collections.emptyMap())).thenReturn(call);
+    List<Runnable> submitted = new ArrayList<>();
+    doAnswer(invocation -> submitted.add(invocation.getArgument(0))).when(mockClient).submit(any(Runnable.class));
+    when(mockMapper.getSourceRecordFromSoapMessage(KEY, mockResponse, TOPIC, ValueFormat.JSON_STRING,
+        Collections.emptyMap()))
+        .thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+    assertTrue(queue.isEmpty());
+
+    call.complete(mockResponse);
+    assertEquals(1, submitted.size());
+    submitted.get(0).run();
+
+    assertSame(mockRecord, queue.poll().getRecord());
+  }
+
+  @Test
+  public void given_in_flight_limit_reached_when_run_then_cycle_skipped_without_back_off() {
+    when(mockConfig.getLong(SoapClientConfig.POLL_INTERVAL)).thenReturn(1000L);
+    when(mockConfig.getLong(SoapClientConfig.MAX_POLL_INTERVAL)).thenReturn(3000L);
+    when(mockConfig.getDouble(SoapClientConfig.POLL_BACKOFF_MULTIPLIER)).thenReturn(2.0);
+    when(mockClient.invokesAsync()).thenReturn(true);
+    CompletableFuture<SOAPMessage> rejected = new CompletableFuture<>();
+    rejected.completeExceptionally(new RejectedExecutionException("limit reached"));
+    when(mockClient.callAsync(Collections.emptyMap())).thenReturn(rejected);
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArgument(0)).run();
+      return null;
+    }).when(mockClient).submit(any(Runnable.class));
+
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    assertDoesNotThrow(poller::run);
+    assertTrue(queue.isEmpty());
+    assertEquals(1000L, poller.getCurrentInterval());
+  }
+
+  @Test
+  public void given_failing_client_when_run_repeatedly_then_interval_backs_off_and_recovers() throws Exception {
+    when(mockConfig.getLong(SoapClientConfig.POLL_INTERVAL)).thenReturn(1000L);
+    when(mockConfig.getLong(SoapClientConfig.MAX_POLL_INTERVAL)).thenReturn(3000L);
+    when(mockConfig.getDouble(SoapClientConfig.POLL_BACKOFF_MULTIPLIER)).thenReturn(2.0);
+    when(mockClient.call(Collections.emptyMap()))
+        .thenThrow(new RuntimeException("Unexpected Error fetching Service"))
+        .thenThrow(new RuntimeException("Unexpected Error fetching Service"))
+        .thenReturn(mockResponse);
+    when(mockMapper.getSourceRecordFromSoapMessage(KEY, mockResponse, TOPIC, ValueFormat.JSON_STRING,
+        Collections.emptyMap()))
+        .thenReturn(mockRecord);
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    poller.run();
+    assertEquals(2000L, poller.getCurrentInterval());
+    poller.run();
+    assertEquals(3000L, poller.getCurrentInterval());
+    poller.run();
+    assertEquals(1000L, poller.getCurrentInterval());
+  }
+
+  @Test
+  public void given_adaptive_polling_when_responses_repeat_then_interval_grows_until_one_changes() throws Exception {
+    when(mockConfig.getLong(SoapClientConfig.POLL_INTERVAL)).thenReturn(1000L);
+    when(mockConfig.getLong(SoapClientConfig.MIN_POLL_INTERVAL)).thenReturn(250L);
+    when(mockConfig.getLong(SoapClientConfig.MAX_POLL_INTERVAL)).thenReturn(8000L);
+    when(mockConfig.getDouble(SoapClientConfig.POLL_BACKOFF_MULTIPLIER)).thenReturn(2.0);
+    when(mockConfig.getBoolean(SoapClientConfig.ADAPTIVE_POLLING)).thenReturn(true);
+    when(mockClient.call(Collections.emptyMap()))
+        .thenReturn(soapMessage("<r><v>1</v></r>"), soapMessage("<r><v>1</v></r>"), soapMessage("<r><v>1</v></r>"),
+            soapMessage("<r><v>2</v></r>"));
+    when(mockMapper.getSourceRecordFromSoapMessage(eq(KEY), any(SOAPMessage.class), eq(TOPIC),
+        eq(ValueFormat.JSON_STRING), anyMap()))
+        .thenReturn(mockRecord);
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    poller.run();
+    assertEquals(500L, poller.getCurrentInterval());
+    poller.run();
+    assertEquals(1000L, poller.getCurrentInterval());
+    poller.run();
+    assertEquals(2000L, poller.getCurrentInterval());
+    poller.run();
+    assertEquals(1000L, poller.getCurrentInterval());
+  }
+
+  @Test
+  public void given_quota_reached_when_run_then_call_is_skipped_until_released() throws Exception {
+    when(mockConfig.getInt(SoapClientConfig.REQUEST_QUOTA)).thenReturn(1);
+    when(mockClient.call(Collections.emptyMap())).thenReturn(mockResponse);
+    when(mockMapper.getSourceRecordFromSoapMessage(KEY, mockResponse, TOPIC, ValueFormat.JSON_STRING,
+        Collections.emptyMap()))
+        .thenReturn(mockRecord);
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    poller.run();
+    poller.run();
+    assertEquals(1, queue.size());
+    verify(mockClient, times(1)).call(Collections.emptyMap());
+
+    queue.poll().getPoller().release();
+    poller.run();
+    assertEquals(1, queue.size());
+    verify(mockClient, times(2)).call(Collections.emptyMap());
+  }
+
+  @Test
+  public void given_watermark_path_when_run_then_highest_watermark_is_sent_and_stored_in_offset() throws Exception {
+    Map<String, String> watermark = Collections.singletonMap(SoapRequestPoller.WATERMARK, "12");
+    when(mockConfig.getString(SoapClientConfig.WATERMARK_PATH)).thenReturn("item/updated");
+    when(mockConfig.getString(SoapClientConfig.WATERMARK_INITIAL_VALUE)).thenReturn("");
+    SOAPMessage response = soapMessage("<items><item><updated>7</updated></item>"
+        + "<item><updated>12</updated></item><item><updated>9</updated></item></items>");
+    when(mockClient.call(Collections.singletonMap(SoapRequestPoller.WATERMARK, ""))).thenReturn(response);
+    when(mockClient.call(watermark)).thenReturn(response);
+    when(mockMapper.getSourceRecordFromSoapMessage(KEY, response, TOPIC, ValueFormat.JSON_STRING, watermark))
+        .thenReturn(mockRecord);
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    poller.run();
+    poller.run();
+
+    assertEquals("12", poller.getWatermark());
+    assertEquals(2, queue.size());
+    verify(mockClient, times(1)).call(watermark);
+  }
+
+  @Test
+  public void given_watermark_path_without_initial_value_when_first_run_then_empty_watermark_is_sent() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.WATERMARK_PATH)).thenReturn("item/updated");
+    when(mockConfig.getString(SoapClientConfig.WATERMARK_INITIAL_VALUE)).thenReturn(null);
+    SOAPMessage response = soapMessage("<items><item><updated>3</updated></item></items>");
+    when(mockClient.call(Collections.singletonMap(SoapRequestPoller.WATERMARK, ""))).thenReturn(response);
+    when(mockMapper.getSourceRecordFromSoapMessage(KEY, response, TOPIC, ValueFormat.JSON_STRING,
+        Collections.singletonMap(SoapRequestPoller.WATERMARK, "3"))).thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+
+    assertEquals(1, queue.size());
+    verify(mockClient, never()).call(Collections.emptyMap());
+  }
+
+  @Test
+  public void given_committed_offset_when_restored_then_watermark_resumes_from_it() {
+    when(mockConfig.getString(SoapClientConfig.WATERMARK_PATH)).thenReturn("//updated");
+    when(mockConfig.getString(SoapClientConfig.WATERMARK_INITIAL_VALUE)).thenReturn("1");
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    assertEquals("1", poller.getWatermark());
+    poller.restore(Collections.singletonMap(SoapRequestPoller.WATERMARK, "2021-03-01T00:00:00Z"));
+
+    assertEquals("2021-03-01T00:00:00Z", poller.getWatermark());
+  }
+
+  @Test
+  public void given_page_token_path_when_run_then_every_page_is_queued_with_next_page_prefetched() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.PAGE_TOKEN_PATH)).thenReturn("next");
+    when(mockConfig.getInt(SoapClientConfig.MAX_PAGES)).thenReturn(10);
+    when(mockConfig.getBoolean(SoapClientConfig.PAGE_PREFETCH)).thenReturn(true);
+    SOAPMessage first = soapMessage("<items><item>a</item><next>t2</next></items>");
+    SOAPMessage second = soapMessage("<items><item>b</item><next>t3</next></items>");
+    SOAPMessage last = soapMessage("<items><item>c</item></items>");
+    when(mockClient.call(page("", 1))).thenReturn(first);
+    when(mockClient.call(page("t2", 2))).thenReturn(second);
+    when(mockClient.call(page("t3", 3))).thenReturn(last);
+    when(mockMapper.getSourceRecordFromSoapMessage(eq(KEY), any(SOAPMessage.class), eq(TOPIC),
+        eq(ValueFormat.JSON_STRING), eq(Collections.emptyMap()))).thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+
+    assertEquals(3, queue.size());
+    verify(mockClient, times(2)).submit(any(Runnable.class));
+    verify(mockClient, times(1)).call(page("t3", 3));
+  }
+
+  @Test
+  public void given_max_pages_reached_when_run_then_cycle_stops() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.PAGE_TOKEN_PATH)).thenReturn("next");
+    when(mockConfig.getInt(SoapClientConfig.MAX_PAGES)).thenReturn(2);
+    SOAPMessage first = soapMessage("<items><item>a</item><next>t2</next></items>");
+    SOAPMessage second = soapMessage("<items><item>b</item><next>t3</next></items>");
+    when(mockClient.call(page("", 1))).thenReturn(first);
+    when(mockClient.call(page("t2", 2))).thenReturn(second);
+    when(mockMapper.getSourceRecordFromSoapMessage(eq(KEY), any(SOAPMessage.class), eq(TOPIC),
+        eq(ValueFormat.JSON_STRING), eq(Collections.emptyMap()))).thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+
+    assertEquals(2, queue.size());
+    verify(mockClient, never()).submit(any(Runnable.class));
+  }
+
+  @Test
+  public void given_split_element_path_when_run_then_one_record_per_item_keyed_by_item_id() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ELEMENT_PATH)).thenReturn("item");
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ITEM_KEY)).thenReturn("id");
+    SOAPMessage response = soapMessage("<items><item id=\"x\"/><item id=\"y\"/><item id=\"z\"/></items>");
+    when(mockClient.call(Collections.emptyMap())).thenReturn(response);
+    when(mockMapper.getSourceRecordFromItem(any(RecordKey.class), any(Element.class), eq(TOPIC),
+        eq(ValueFormat.JSON_STRING), eq(Collections.emptyMap()))).thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+
+    assertEquals(3, queue.size());
+    verify(mockMapper).getSourceRecordFromItem(eq(KEY.toBuilder().itemId("y").build()), any(Element.class),
+        eq(TOPIC), eq(ValueFormat.JSON_STRING), eq(Collections.emptyMap()));
+  }
+
+  @Test
+  public void given_streaming_client_and_split_element_path_when_run_then_items_are_mapped_as_read() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ELEMENT_PATH)).thenReturn("item");
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ITEM_KEY)).thenReturn("id");
+    when(mockClient.streamsResponses()).thenReturn(true);
+    when(mockClient.callStream(Collections.emptyMap()))
+        .thenReturn(envelope("<items><item id=\"x\"/><item id=\"y\"/><item id=\"z\"/></items>"));
+    when(mockMapper.getSourceRecordFromItem(any(RecordKey.class), any(Element.class), eq(TOPIC),
+        eq(ValueFormat.JSON_STRING), eq(Collections.emptyMap()))).thenReturn(mockRecord);
+
+    new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue).run();
+
+    assertEquals(3, queue.size());
+    verify(mockMapper).getSourceRecordFromItem(eq(KEY.toBuilder().itemId("z").build()), any(Element.class),
+        eq(TOPIC), eq(ValueFormat.JSON_STRING), eq(Collections.emptyMap()));
+    verify(mockClient, never()).call(anyMap());
+  }
+
+  @Test
+  public void given_unchanged_response_when_suppressing_then_only_first_one_is_queued() throws Exception {
+    when(mockConfig.getBoolean(SoapClientConfig.SUPPRESS_UNCHANGED)).thenReturn(true);
+    SOAPMessage response = soapMessage("<items><item>a</item></items>");
+    when(mockClient.call(Collections.emptyMap())).thenReturn(response);
+    when(mockMapper.getSourceRecordFromSoapMessage(eq(KEY), eq(response), eq(TOPIC), eq(ValueFormat.JSON_STRING),
+        anyMap())).thenReturn(mockRecord);
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    poller.run();
+    poller.run();
+
+    assertEquals(1, queue.size());
+    verify(mockMapper).getSourceRecordFromSoapMessage(KEY, response, TOPIC, ValueFormat.JSON_STRING,
+        Collections.singletonMap(SoapRequestPoller.FINGERPRINT, poller.getFingerprint()));
+  }
+
+  @Test
+  public void given_fingerprint_restored_from_offset_when_same_response_then_nothing_queued() throws Exception {
+    when(mockConfig.getBoolean(SoapClientConfig.SUPPRESS_UNCHANGED)).thenReturn(true);
+    SOAPMessage response = soapMessage("<items><item>a</item></items>");
+    when(mockClient.call(Collections.emptyMap())).thenReturn(response);
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue);
+
+    poller.restore(Collections.singletonMap(SoapRequestPoller.FINGERPRINT,
+        ContentFingerprint.of(soapMessage("<items>\n  <item>a</item>\n</items>").getSOAPBody())));
+    poller.run();
+
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void given_change_capture_when_items_change_then_only_changes_and_tombstones_are_queued() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ELEMENT_PATH)).thenReturn("item");
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ITEM_KEY)).thenReturn("id");
+    when(mockConfig.getBoolean(SoapClientConfig.CHANGE_CAPTURE)).thenReturn(true);
+    when(mockClient.call(Collections.emptyMap())).thenReturn(
+        soapMessage("<items><item id=\"a\">1</item><item id=\"b\">2</item></items>"),
+        soapMessage("<items><item id=\"a\">1</item><item id=\"b\">3</item><item id=\"c\">4</item></items>"),
+        soapMessage("<items><item id=\"a\">1</item></items>"));
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, new SourceRecordMapper(), KEY, TOPIC, queue);
+
+    poller.run();
+    assertEquals(Arrays.asList("INSERT", "INSERT"), drainOperations());
+    poller.run();
+    assertEquals(Arrays.asList("UPDATE", "INSERT"), drainOperations());
+    poller.run();
+    List<PolledRecord> deletions = new ArrayList<>();
+    queue.drainTo(deletions);
+
+    assertEquals(2, deletions.size());
+    for (PolledRecord deletion : deletions) {
+      assertNull(deletion.getRecord().value());
+      assertEquals(SoapRequestPoller.DELETE,
+          deletion.getRecord().headers().lastWithName(SoapRequestPoller.OPERATION_HEADER).value());
+    }
+  }
+
+  @Test
+  public void given_change_capture_when_max_pages_cut_cycle_then_items_not_read_are_not_deleted() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ELEMENT_PATH)).thenReturn("item");
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ITEM_KEY)).thenReturn("id");
+    when(mockConfig.getBoolean(SoapClientConfig.CHANGE_CAPTURE)).thenReturn(true);
+    when(mockConfig.getString(SoapClientConfig.PAGE_TOKEN_PATH)).thenReturn("next");
+    when(mockConfig.getInt(SoapClientConfig.MAX_PAGES)).thenReturn(1);
+    when(mockClient.call(page("", 1))).thenReturn(
+        soapMessage("<items><item id=\"a\">1</item><item id=\"b\">2</item></items>"),
+        soapMessage("<items><item id=\"a\">1</item><next>t2</next></items>"));
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, new SourceRecordMapper(), KEY, TOPIC, queue);
+
+    poller.run();
+    assertEquals(Arrays.asList("INSERT", "INSERT"), drainOperations());
+    poller.run();
+
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void given_change_capture_when_item_fails_to_map_then_it_is_emitted_next_cycle() throws Exception {
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ELEMENT_PATH)).thenReturn("item");
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ITEM_KEY)).thenReturn("id");
+    when(mockConfig.getBoolean(SoapClientConfig.CHANGE_CAPTURE)).thenReturn(true);
+    when(mockClient.call(Collections.emptyMap())).thenAnswer(
+        invocation -> soapMessage("<items><item id=\"a\">1</item></items>"));
+    SourceRecordMapper mapper = spy(new SourceRecordMapper());
+    doThrow(new DataException("boom")).doCallRealMethod().when(mapper)
+        .getSourceRecordFromItem(any(RecordKey.class), any(Element.class), eq(TOPIC), eq(ValueFormat.JSON_STRING),
+            anyMap());
+    SoapRequestPoller poller = new SoapRequestPoller(mockClient, mapper, KEY, TOPIC, queue);
+
+    poller.run();
+    assertTrue(queue.isEmpty());
+    poller.run();
+
+    assertEquals(Collections.singletonList("INSERT"), drainOperations());
+  }
+
+  @Test
+  public void given_change_capture_without_item_key_when_created_then_config_exception() {
+    when(mockConfig.getString(SoapClientConfig.SPLIT_ELEMENT_PATH)).thenReturn("item");
+    when(mockConfig.getBoolean(SoapClientConfig.CHANGE_CAPTURE)).thenReturn(true);
+
+    assertThrows(ConfigException.class, () -> new SoapRequestPoller(mockClient, mockMapper, KEY, TOPIC, queue));
+  }
+
+  private List<String> drainOperations() {
+    List<PolledRecord> records = new ArrayList<>();
+    queue.drainTo(records);
+    List<String> operations = new ArrayList<>();
+    for (PolledRecord r : records) {
+      operations.add((String) r.getRecord().headers().lastWithName(SoapRequestPoller.OPERATION_HEADER).value());
+    }
+    return operations;
+  }
+
+  private static Map<String, String> page(String token, int number) {
+    Map<String, String> variables = new HashMap<>();
+    variables.put(SoapRequestPoller.PAGE_TOKEN, token);
+    variables.put(SoapRequestPoller.PAGE_NUMBER, String.valueOf(number));
+    return variables;
+  }
+
+  private static SOAPMessage soapMessage(String payload) throws Exception {
+    MimeHeaders headers = new MimeHeaders();
+    headers.addHeader("Content-Type", "text/xml; charset=utf-8");
+    return MessageFactory.newInstance().createMessage(headers, envelope(payload));
+  }
+
+  private static ByteArrayInputStream envelope(String payload) {
+    String envelope = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+        + "<soapenv:Body>" + payload + "</soapenv:Body></soapenv:Envelope>";
+    return new ByteArrayInputStream(envelope.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -20,6 +20,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -44,7 +45,9 @@ class SoapSourceConnectorTest {
     classToTest.start(testSettings);
 
     List<Map<String, String>> actual = classToTest.taskConfigs(1);
-    assertEquals(Collections.singletonList(testSettings), actual);
+    Map<String, String> expected = new HashMap<>(testSettings);
+    expected.put(SoapSourceTaskConfig.TASK_INDEX, "0");
+    assertEquals(Collections.singletonList(expected), actual);
   }
 
 
@@ -167,4 +170,63 @@ class SoapSourceConnectorTest {
       }
     }
   }
+
+  @Test
+  public void test_13_given_request_weights_check_heavy_requests_go_to_different_tasks() {
+
+    Map<String, String> testSettings = SourceTaskSettingMother.createValidMultiRequestMockSettings(4);
+    testSettings.put(AbstractSoapSourceConfig.REQUEST_OVERRIDE_PREFIX + "equest.xml.requestWeight", "10");
+    testSettings.put(AbstractSoapSourceConfig.REQUEST_OVERRIDE_PREFIX + "equest-3.xml.requestWeight", "10");
+    classToTest.start(testSettings);
+
+    List<Map<String, String>> actual = classToTest.taskConfigs(2);
+
+    assertEquals(2, actual.size());
+    actual.forEach(c -> {
+      String taskFiles = c.get(SoapSourceTaskConfig.REQUEST_MSG_FILES);
+      assertTrue(taskFiles.contains("equest.xml") ^ taskFiles.contains("equest-3.xml"));
+    });
+  }
+
+  @Test
+  public void test_14_given_request_directory_check_every_task_gets_a_share() {
+
+    Map<String, String> testSettings = SourceTaskSettingMother.createValidMockSettings();
+    testSettings.remove(AbstractSoapSourceConfig.REQUEST_MSG_FILES);
+    testSettings.put(AbstractSoapSourceConfig.REQUEST_MSG_DIRECTORY, "/homer/fakeuser/requests");
+    classToTest.start(testSettings);
+
+    List<Map<String, String>> actual = classToTest.taskConfigs(3);
+
+    assertEquals(3, actual.size());
+    for (int i = 0; i < actual.size(); i++) {
+      assertEquals(String.valueOf(i), actual.get(i).get(SoapSourceTaskConfig.REQUEST_DIRECTORY_SHARD));
+      assertEquals(String.valueOf(i), actual.get(i).get(SoapSourceTaskConfig.TASK_INDEX));
+      assertEquals("3", actual.get(i).get(SoapSourceTaskConfig.REQUEST_DIRECTORY_SHARDS));
+      assertEquals("", actual.get(i).get(SoapSourceTaskConfig.REQUEST_MSG_FILES));
+    }
+  }
+
+  @Test
+  public void test_16_given_files_and_request_directory_check_every_task_leaves_the_listed_files_out() {
+
+    Map<String, String> testSettings = SourceTaskSettingMother.createValidMockSettings();
+    testSettings.put(AbstractSoapSourceConfig.REQUEST_MSG_DIRECTORY, "/homer/fakeuser/requests");
+    String listed = testSettings.get(AbstractSoapSourceConfig.REQUEST_MSG_FILES);
+    classToTest.start(testSettings);
+
+    List<Map<String, String>> actual = classToTest.taskConfigs(3);
+
+    assertEquals(3, actual.size());
+    actual.forEach(c -> assertEquals(listed, c.get(SoapSourceTaskConfig.REQUEST_DIRECTORY_EXCLUDED)));
+  }
+
+  @Test
+  public void test_15_given_neither_files_nor_directory_check_throws_config_exception() {
+
+    Map<String, String> testSettings = SourceTaskSettingMother.createValidMockSettings();
+    testSettings.remove(AbstractSoapSourceConfig.REQUEST_MSG_FILES);
+
+    assertThrows(ConfigException.class, () -> classToTest.start(testSettings));
+  }
 }
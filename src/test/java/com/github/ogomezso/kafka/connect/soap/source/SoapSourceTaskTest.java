@@ -17,6 +17,8 @@ package com.github.ogomezso.kafka.connect.soap.source;
 import com.github.ogomezso.kafka.connect.soap.client.SoapClientConfig;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -24,12 +26,17 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class SoapSourceTaskTest {
 
@@ -44,6 +51,7 @@ class SoapSourceTaskTest {
   public void test_1_given_valid_config_when_start_task_then_no_exception_thrown() {
     Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMockSettings();
     assertDoesNotThrow(() -> classToTest.start(mockedSettings));
+    classToTest.stop();
   }
 
   @Test
@@ -123,6 +131,103 @@ class SoapSourceTaskTest {
     }
   }
 
+  @Test
+  public void test_12_given_per_request_poll_interval_when_validate_then_only_that_client_overridden() {
+    Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMultiRequestMockTaskSettings(2);
+    mockedSettings.put(SoapSourceTaskConfig.REQUEST_OVERRIDE_PREFIX + "equest.xml." + SoapClientConfig.POLL_INTERVAL,
+        "86400000");
+    mockedSettings.put(SoapSourceTaskConfig.REQUEST_OVERRIDE_PREFIX + "equest.xml." + SoapClientConfig.REQUEST_QUOTA,
+        "1");
+
+    List<SoapClientConfig> actual = classToTest.test_validateAndsSetConfigVars(mockedSettings);
+
+    assertEquals(86400000L, actual.get(0).getLong(SoapClientConfig.POLL_INTERVAL));
+    assertEquals(1, actual.get(0).getInt(SoapClientConfig.REQUEST_QUOTA));
+    assertEquals(Long.valueOf(SourceTaskSettingMother.POLL_INTERVAL), actual.get(1).getLong(SoapClientConfig.POLL_INTERVAL));
+    assertEquals(0, actual.get(1).getInt(SoapClientConfig.REQUEST_QUOTA));
+  }
+
+  @Test
+  public void test_13_given_negative_per_request_poll_interval_when_start_task_then_throws_config_exception() {
+    Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMockSettings();
+    mockedSettings.put(SoapSourceTaskConfig.REQUEST_OVERRIDE_PREFIX + "equest.xml." + SoapClientConfig.POLL_INTERVAL,
+        SourceTaskSettingMother.KO_POLL_INTERVAL);
+    assertThrows(ConfigException.class, () -> classToTest.start(mockedSettings));
+  }
+
+  @Test
+  public void test_14_given_max_batch_records_when_poll_then_batches_are_bounded() throws Exception {
+    Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMockSettings();
+    mockedSettings.put(SoapSourceTaskConfig.MAX_BATCH_RECORDS, "2");
+    classToTest.start(mockedSettings);
+    SoapRequestPoller poller = mock(SoapRequestPoller.class);
+    try {
+      for (int i = 0; i < 5; i++) {
+        classToTest.test_completionQueue().put(new PolledRecord(poller, record("value-" + i)));
+      }
+
+      assertEquals(2, classToTest.poll().size());
+      assertEquals(2, classToTest.poll().size());
+      assertEquals(1, classToTest.poll().size());
+      verify(poller, times(5)).release();
+    } finally {
+      classToTest.stop();
+    }
+  }
+
+  @Test
+  public void test_15_given_max_batch_bytes_when_poll_then_records_that_do_not_fit_wait() throws Exception {
+    Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMockSettings();
+    mockedSettings.put(SoapSourceTaskConfig.MAX_BATCH_BYTES, "10");
+    classToTest.start(mockedSettings);
+    SoapRequestPoller poller = mock(SoapRequestPoller.class);
+    try {
+      classToTest.test_completionQueue().put(new PolledRecord(poller, record("12345678")));
+      classToTest.test_completionQueue().put(new PolledRecord(poller, record("123")));
+      classToTest.test_completionQueue().put(new PolledRecord(poller, record("12345678901234567890")));
+
+      assertEquals(1, classToTest.poll().size());
+      assertEquals(1, classToTest.poll().size());
+      // a record larger than the limit still goes, on its own
+      List<SourceRecord> actual = classToTest.poll();
+      assertEquals(1, actual.size());
+      assertEquals("12345678901234567890", actual.get(0).value());
+    } finally {
+      classToTest.stop();
+    }
+  }
+
+  @Test
+  public void test_16_given_batch_linger_when_poll_then_waits_for_more_records() throws Exception {
+    Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMockSettings();
+    mockedSettings.put(SoapSourceTaskConfig.BATCH_LINGER, "2000");
+    mockedSettings.put(SoapSourceTaskConfig.MAX_BATCH_RECORDS, "2");
+    classToTest.start(mockedSettings);
+    SoapRequestPoller poller = mock(SoapRequestPoller.class);
+    try {
+      classToTest.test_completionQueue().put(new PolledRecord(poller, record("first")));
+      CompletableFuture.runAsync(() -> {
+        try {
+          TimeUnit.MILLISECONDS.sleep(100);
+          classToTest.test_completionQueue().put(new PolledRecord(poller, record("second")));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      long start = System.nanoTime();
+      assertEquals(2, classToTest.poll().size());
+      // the full batch returns without waiting for the whole linger
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+    } finally {
+      classToTest.stop();
+    }
+  }
+
+  private static SourceRecord record(String value) {
+    return new SourceRecord(null, null, SourceTaskSettingMother.TOPIC, null, null, null, Schema.STRING_SCHEMA, value);
+  }
+
   private void validateClientConfigs(int files, String assignmentStrategy) {
     Map<String, String> mockedSettings = SourceTaskSettingMother.createValidMultiRequestMockTaskSettings(files,
         assignmentStrategy);
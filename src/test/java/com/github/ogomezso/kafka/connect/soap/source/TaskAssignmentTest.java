@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TaskAssignmentTest {
+
+  @Test
+  void given_equal_costs_when_balance_then_requests_are_dealt_round_robin() {
+    List<List<Integer>> actual = TaskAssignment.balance(new double[] {1, 1, 1, 1, 1}, 2);
+
+    assertEquals(Arrays.asList(Arrays.asList(0, 2, 4), Arrays.asList(1, 3)), actual);
+  }
+
+  @Test
+  void given_two_heavy_requests_when_balance_then_they_go_to_different_tasks() {
+    double[] costs = {10, 1, 1, 10, 1, 1};
+
+    List<List<Integer>> actual = TaskAssignment.balance(costs, 2);
+
+    int taskOfFirst = actual.get(0).contains(0) ? 0 : 1;
+    int taskOfSecond = actual.get(0).contains(3) ? 0 : 1;
+    assertNotEquals(taskOfFirst, taskOfSecond);
+    assertEquals(12, TaskAssignment.maxLoad(actual, costs));
+  }
+
+  @Test
+  void given_one_dominant_request_when_balance_then_every_task_gets_a_request() {
+    List<List<Integer>> actual = TaskAssignment.balance(new double[] {100, 1, 1}, 3);
+
+    actual.forEach(task -> assertFalse(task.isEmpty()));
+    assertEquals(Arrays.asList(0), actual.get(0));
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright © 2021 Oscar Gómez (ogomezso0@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.github.ogomezso.kafka.connect.soap.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process SOAP endpoint answering every POST to {@value #PATH} with a countries response of about the configured
+ * size, the same shape as the WireMock {@code getcountry} mapping of the docker based integration test.
+ * <p>
+ * Every response can be delayed by a fixed latency, and a share of them replaced by a SOAP fault with status 500.
+ */
+public class SoapStubServer implements AutoCloseable {
+
+  public static final String PATH = "/mockCountries";
+  public static final String SERVICE_NAME = "CountriesPortService";
+  public static final String PORT_NAME = "CountriesPortSoap11";
+  public static final String TARGET_NAMESPACE = "http://www.baeldung.com/springsoap/gen";
+  public static final String REQUEST = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+      + "xmlns:gen=\"" + TARGET_NAMESPACE + "\"><soapenv:Header/><soapenv:Body><gen:getCountryRequest>"
+      + "<gen:name>Spain</gen:name></gen:getCountryRequest></soapenv:Body></soapenv:Envelope>";
+
+  private static final String ENVELOPE_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\"><SOAP-ENV:Header/>"
+      + "<SOAP-ENV:Body><ns2:getCountryResponse xmlns:ns2=\"" + TARGET_NAMESPACE + "\">";
+  private static final String ENVELOPE_END = "</ns2:getCountryResponse></SOAP-ENV:Body></SOAP-ENV:Envelope>";
+  private static final byte[] FAULT = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\"><SOAP-ENV:Body>"
+      + "<SOAP-ENV:Fault><faultcode>SOAP-ENV:Server</faultcode><faultstring>Injected fault</faultstring>"
+      + "</SOAP-ENV:Fault></SOAP-ENV:Body></SOAP-ENV:Envelope>").getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+  private final ExecutorService threads;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong faults = new AtomicLong();
+  private volatile byte[] response;
+  private volatile long latencyMillis;
+  private volatile double faultRate;
+
+  public SoapStubServer(int responseBytes) throws IOException {
+    this.response = envelope(responseBytes);
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    AtomicInteger count = new AtomicInteger();
+    this.threads = Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "soap-stub-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    server.setExecutor(threads);
+    server.createContext(PATH, this::handle);
+    server.start();
+  }
+
+  /**
+   * A response envelope of at least {@code bytes} bytes: one country, or as many as it takes to reach the size.
+   */
+  public static byte[] envelope(int bytes) {
+    StringBuilder sb = new StringBuilder(Math.max(bytes, 0) + 512).append(ENVELOPE_START);
+    int country = 0;
+    do {
+      country++;
+      sb.append("<ns2:country><ns2:name>Country ").append(country).append("</ns2:name>")
+          .append("<ns2:population>").append(46704314 + country).append("</ns2:population>")
+          .append("<ns2:capital>Capital ").append(country).append("</ns2:capital>")
+          .append("<ns2:currency>EUR</ns2:currency></ns2:country>");
+    } while (sb.length() + ENVELOPE_END.length() < bytes);
+    return sb.append(ENVELOPE_END).toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A response envelope of at least {@code bytes} bytes holding one country, with as many fields, all named
+   * differently, as it takes to reach the size.
+   */
+  public static byte[] recordEnvelope(int bytes) {
+    StringBuilder sb = new StringBuilder(Math.max(bytes, 0) + 512).append(ENVELOPE_START).append("<ns2:country>");
+    int field = 0;
+    do {
+      field++;
+      sb.append("<ns2:region").append(field).append(">Region ").append(field).append("</ns2:region").append(field)
+          .append('>');
+    } while (sb.length() + ENVELOPE_END.length() + 15 < bytes);
+    return sb.append("</ns2:country>").append(ENVELOPE_END).toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public String getEndpointUrl() {
+    return "http://localhost:" + server.getAddress().getPort() + PATH;
+  }
+
+  public void setResponseBytes(int responseBytes) {
+    this.response = envelope(responseBytes);
+  }
+
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Share, from 0 to 1, of the requests answered with a SOAP fault.
+   */
+  public void setFaultRate(double faultRate) {
+    this.faultRate = faultRate;
+  }
+
+  public long getRequests() {
+    return requests.get();
+  }
+
+  public long getFaults() {
+    return faults.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      byte[] buffer = new byte[4096];
+      while (in.read(buffer) != -1) {
+        // the request is not looked at, only consumed so the connection can be reused
+      }
+    }
+    requests.incrementAndGet();
+    if (latencyMillis > 0) {
+      try {
+        Thread.sleep(latencyMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    boolean fault = faultRate > 0 && ThreadLocalRandom.current().nextDouble() < faultRate;
+    if (fault) {
+      faults.incrementAndGet();
+    }
+    byte[] body = fault ? FAULT : response;
+    exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=utf-8");
+    exchange.sendResponseHeaders(fault ? 500 : 200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    threads.shutdownNow();
+    try {
+      threads.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}